@@ -3,11 +3,13 @@ package com.enviro.app.environment_backend;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.boot.web.server.WebServerFactoryCustomizer;
 import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
 
 @SpringBootApplication
+@EnableScheduling // Cho các job nền (prefetch AQI, ...)
 public class EnvironmentBackendApplication {
 
     public static void main(String[] args) {
@@ -15,7 +17,7 @@ public class EnvironmentBackendApplication {
     }
 
     /**
-     * Bean này cung cấp RestTemplate cho AqiService sử dụng
+     * RestTemplate mặc định (AqiService dùng aqiRestTemplate riêng trong AqiConfig)
      */
     @Bean
     public RestTemplate restTemplate() {
@@ -0,0 +1,164 @@
+package com.enviro.app.environment_backend.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import com.enviro.app.environment_backend.service.CircuitBreaker;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Cấu hình hạ tầng cho tích hợp AQI (thread pool gọi upstream song song, HTTP client, ...)
+ */
+@Configuration
+public class AqiConfig {
+
+    /**
+     * Thread pool có giới hạn dùng để fan-out các lời gọi AQI song song.
+     * Khi hàng đợi đầy, task bị từ chối ngay (AbortPolicy): luồng gọi trả "N/A" thay vì tự chạy
+     * lời gọi upstream trên luồng request, bỏ qua thời hạn đúng lúc hệ thống đang quá tải (xem BoundedAsync).
+     */
+    @Bean(name = "aqiExecutor", destroyMethod = "shutdown")
+    public ExecutorService aqiExecutor(@Value("${aqi.fanout.pool-size:16}") int poolSize,
+                                       @Value("${aqi.fanout.queue-capacity:500}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "aqi-fanout-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Pool riêng cho việc ghi SSE (heartbeat, đẩy cập nhật /api/aqi/stream).
+     * Ghi xuống socket có thể chặn khi client chậm; tách khỏi aqiExecutor để các client này
+     * không chiếm worker/hàng đợi của fan-out upstream (/batch, vị trí đã lưu, geocode nền).
+     * Hàng đợi đầy thì nhóm ghi bị bỏ (AbortPolicy), lần heartbeat/đẩy sau thử lại.
+     */
+    @Bean(name = "aqiStreamExecutor", destroyMethod = "shutdown")
+    public ExecutorService aqiStreamExecutor(@Value("${aqi.stream.writer-pool-size:4}") int poolSize,
+                                             @Value("${aqi.stream.writer-queue-capacity:1000}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "aqi-stream-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Circuit breaker bao quanh các lời gọi OpenWeatherMap: khi tỉ lệ lỗi vượt ngưỡng
+     * sẽ fail fast, AqiService trả dữ liệu cũ trong cache (stale) thay vì chờ timeout.
+     */
+    @Bean(name = "aqiCircuitBreaker")
+    public CircuitBreaker aqiCircuitBreaker(@Value("${aqi.circuit-breaker.window-size:20}") int windowSize,
+                                            @Value("${aqi.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                                            @Value("${aqi.circuit-breaker.failure-rate-threshold:50}") double failureRateThreshold,
+                                            @Value("${aqi.circuit-breaker.open-duration-seconds:30}") long openDurationSeconds) {
+        return new CircuitBreaker("openweathermap", windowSize, minimumCalls,
+                failureRateThreshold, openDurationSeconds * 1000);
+    }
+
+    /**
+     * RestTemplate riêng cho OpenWeatherMap (AQI + Geocoding).
+     * - aqi.http.client=pooled (mặc định): Apache HttpClient 5, keep-alive, giới hạn kết nối theo host, tự giải nén gzip
+     * - aqi.http.client=simple: HttpURLConnection của JDK (không pool) nhưng vẫn có timeout
+     * Mỗi request được đo bằng Micrometer timer "aqi.upstream.requests" theo endpoint.
+     */
+    @Bean(name = "aqiRestTemplate")
+    public RestTemplate aqiRestTemplate(@Value("${aqi.http.client:pooled}") String clientType,
+                                        @Value("${aqi.http.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                        @Value("${aqi.http.read-timeout-ms:3000}") int readTimeoutMs,
+                                        @Value("${aqi.http.pool-acquire-timeout-ms:1000}") int acquireTimeoutMs,
+                                        @Value("${aqi.http.max-connections:100}") int maxConnections,
+                                        @Value("${aqi.http.max-connections-per-host:50}") int maxConnectionsPerHost,
+                                        @Value("${aqi.http.keep-alive-seconds:30}") int keepAliveSeconds,
+                                        MeterRegistry meterRegistry) {
+        ClientHttpRequestFactory requestFactory;
+        if ("simple".equalsIgnoreCase(clientType)) {
+            SimpleClientHttpRequestFactory simple = new SimpleClientHttpRequestFactory();
+            simple.setConnectTimeout(connectTimeoutMs);
+            simple.setReadTimeout(readTimeoutMs);
+            requestFactory = simple;
+        } else {
+            PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                    .setMaxConnTotal(maxConnections)
+                    .setMaxConnPerRoute(maxConnectionsPerHost)
+                    .setDefaultConnectionConfig(ConnectionConfig.custom()
+                            .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                            .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                            .setTimeToLive(TimeValue.ofMinutes(5))
+                            .build())
+                    .build();
+
+            CloseableHttpClient httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectionRequestTimeout(Timeout.ofMilliseconds(acquireTimeoutMs))
+                            .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                            .build())
+                    .setKeepAliveStrategy((response, context) -> TimeValue.ofSeconds(keepAliveSeconds))
+                    .evictExpiredConnections()
+                    .evictIdleConnections(TimeValue.ofSeconds(keepAliveSeconds))
+                    .build();
+            requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        }
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(timingInterceptor(meterRegistry));
+        return restTemplate;
+    }
+
+    private ClientHttpRequestInterceptor timingInterceptor(MeterRegistry meterRegistry) {
+        return (request, body, execution) -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "IO_ERROR";
+            try {
+                var response = execution.execute(request, body);
+                outcome = response.getStatusCode().is2xxSuccessful() ? "SUCCESS" : "HTTP_" + response.getStatusCode().value();
+                return response;
+            } finally {
+                sample.stop(Timer.builder("aqi.upstream.requests")
+                        .description("Thời gian gọi API OpenWeatherMap")
+                        .tag("endpoint", request.getURI().getPath())
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+            }
+        };
+    }
+}
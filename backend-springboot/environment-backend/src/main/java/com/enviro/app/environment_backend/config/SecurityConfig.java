@@ -102,7 +102,14 @@ public class SecurityConfig {
                 .requestMatchers(mvc.pattern("/api/auth/**")).permitAll()
                 .requestMatchers(mvc.pattern("/auth/**")).permitAll() // <--- THÊM DÒNG NÀY ĐỂ FIX LỖI PATH
                 
-                // 2. Cho phép API AQI
+                // 2. Cho phép API AQI, trừ các endpoint tốn tài nguyên (batch nhiều toạ độ,
+                //    kết nối SSE giữ lâu, thống kê cache) phải đăng nhập. Đặt trước /api/aqi/**.
+                .requestMatchers(mvc.pattern("/api/aqi/batch")).authenticated()
+                .requestMatchers(mvc.pattern("/api/aqi/stream")).authenticated()
+                .requestMatchers(mvc.pattern("/api/aqi/cache/stats")).authenticated()
+                .requestMatchers(mvc.pattern("/aqi/batch")).authenticated()
+                .requestMatchers(mvc.pattern("/aqi/stream")).authenticated()
+                .requestMatchers(mvc.pattern("/aqi/cache/stats")).authenticated()
                 .requestMatchers(mvc.pattern("/api/aqi/**")).permitAll()
                 .requestMatchers(mvc.pattern("/aqi/**")).permitAll()
                 
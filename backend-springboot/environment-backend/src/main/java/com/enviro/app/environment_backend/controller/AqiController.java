@@ -2,20 +2,31 @@ package com.enviro.app.environment_backend.controller;
 
 import com.enviro.app.environment_backend.dto.AqiAlertRequest;
 import com.enviro.app.environment_backend.dto.AqiAlertResponse;
+import com.enviro.app.environment_backend.dto.AqiBatchRequest;
+import com.enviro.app.environment_backend.dto.AqiCacheStatsResponse;
+import com.enviro.app.environment_backend.dto.AqiForecastResponse;
+import com.enviro.app.environment_backend.dto.AqiHistoryResponse;
+import com.enviro.app.environment_backend.dto.AqiRequest;
 import com.enviro.app.environment_backend.dto.AqiResponse;
 import com.enviro.app.environment_backend.dto.SavedLocationAqiResponse;
 import com.enviro.app.environment_backend.model.User;
+import com.enviro.app.environment_backend.service.AqiForecastService;
+import com.enviro.app.environment_backend.service.AqiHistoryService;
 import com.enviro.app.environment_backend.service.AqiService;
+import com.enviro.app.environment_backend.service.AqiStreamService;
 import com.enviro.app.environment_backend.service.SavedLocationService;
 import com.enviro.app.environment_backend.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -25,14 +36,23 @@ public class AqiController {
     private final AqiService aqiService;
     private final SavedLocationService savedLocationService;
     private final UserService userService;
+    private final AqiHistoryService aqiHistoryService;
+    private final AqiStreamService aqiStreamService;
+    private final AqiForecastService aqiForecastService;
 
     // Constructor Injection đầy đủ
     public AqiController(AqiService aqiService, 
                          SavedLocationService savedLocationService, 
-                         UserService userService) {
+                         UserService userService,
+                         AqiHistoryService aqiHistoryService,
+                         AqiStreamService aqiStreamService,
+                         AqiForecastService aqiForecastService) {
         this.aqiService = aqiService;
         this.savedLocationService = savedLocationService;
         this.userService = userService;
+        this.aqiHistoryService = aqiHistoryService;
+        this.aqiStreamService = aqiStreamService;
+        this.aqiForecastService = aqiForecastService;
     }
 
     private User getCurrentUser() {
@@ -51,6 +71,50 @@ public class AqiController {
         return ResponseEntity.ok(aqiData);
     }
 
+    // AQI cho nhiều tọa độ trong một lần gọi, kết quả theo đúng thứ tự đầu vào (yêu cầu đăng nhập)
+    @PostMapping("/batch")
+    public ResponseEntity<List<AqiResponse>> getAqiBatch(@Valid @RequestBody AqiBatchRequest request) {
+        return ResponseEntity.ok(aqiService.getCurrentAqiBatch(request.getLocations()));
+    }
+
+    // Luồng SSE đẩy AQI mới mỗi khi ô lưới được làm mới; mỗi tham số point có dạng "lat,lon" (yêu cầu đăng nhập)
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAqi(@RequestParam("point") List<String> points) {
+        List<AqiRequest> locations = new ArrayList<>(points.size());
+        for (String point : points) {
+            locations.add(parsePoint(point));
+        }
+        return aqiStreamService.subscribe(locations);
+    }
+
+    // Dự báo AQI theo giờ (đọc từ kho dự báo, không gọi upstream cho mỗi người dùng)
+    @GetMapping("/forecast")
+    public ResponseEntity<AqiForecastResponse> getAqiForecast(@RequestParam double lat,
+                                                              @RequestParam double lon,
+                                                              @RequestParam(defaultValue = "24") int hours) {
+        AqiForecastResponse forecast = aqiForecastService.getForecast(lat, lon, hours);
+        if (forecast == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(forecast);
+    }
+
+    // Lịch sử AQI của ô lưới chứa (lat, lon); from/to là epoch giây, resolution = raw|hour|day|auto
+    @GetMapping("/history")
+    public ResponseEntity<AqiHistoryResponse> getAqiHistory(@RequestParam double lat,
+                                                            @RequestParam double lon,
+                                                            @RequestParam(required = false) Long from,
+                                                            @RequestParam(required = false) Long to,
+                                                            @RequestParam(defaultValue = "auto") String resolution) {
+        return ResponseEntity.ok(aqiHistoryService.getHistory(lat, lon, from, to, resolution));
+    }
+
+    // Thống kê cache AQI (hit/miss/eviction), yêu cầu đăng nhập
+    @GetMapping("/cache/stats")
+    public ResponseEntity<AqiCacheStatsResponse> getCacheStats() {
+        return ResponseEntity.ok(aqiService.getCacheStats());
+    }
+
     // API này sẽ gọi service đã được cập nhật logic
     @GetMapping("/saved-locations")
     public ResponseEntity<List<SavedLocationAqiResponse>> getAqiForSavedLocations() {
@@ -72,13 +136,33 @@ public class AqiController {
             return ResponseEntity.ok(response);
         }
 
+        // So sánh trên cùng thang US AQI (ngưỡng 1-5 được quy về cận trên của mỗi mức)
         int mappedAqiThreshold = mapThresholdLevelToAqi(request.getThreshold());
-        boolean shouldAlert = currentAqi.getAqiValue() > mappedAqiThreshold;
+        int currentUsAqi = currentAqi.getUsAqi() >= 0
+                ? currentAqi.getUsAqi()
+                : mapThresholdLevelToAqi(currentAqi.getAqiValue());
+        boolean shouldAlert = currentUsAqi > mappedAqiThreshold;
         String message = shouldAlert
-                ? "Cảnh báo! Chỉ số AQI hiện tại (" + currentAqi.getAqiValue() + ") đã vượt ngưỡng an toàn."
+                ? "Cảnh báo! Chỉ số AQI hiện tại (" + currentUsAqi + ") đã vượt ngưỡng an toàn."
                 : "Chất lượng không khí đang trong ngưỡng an toàn.";
 
-        return ResponseEntity.ok(new AqiAlertResponse(shouldAlert, currentAqi.getAqiValue(), request.getThreshold(), message));
+        return ResponseEntity.ok(new AqiAlertResponse(shouldAlert, currentUsAqi, request.getThreshold(), message));
+    }
+
+    private AqiRequest parsePoint(String point) {
+        String[] parts = point.split(",");
+        try {
+            if (parts.length == 2) {
+                double lat = Double.parseDouble(parts[0].trim());
+                double lon = Double.parseDouble(parts[1].trim());
+                if (lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180) {
+                    return new AqiRequest(lat, lon);
+                }
+            }
+        } catch (NumberFormatException e) {
+            // rơi xuống lỗi 400 bên dưới
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tọa độ không hợp lệ (lat,lon): " + point);
     }
 
     private int mapThresholdLevelToAqi(int level) {
@@ -6,6 +6,7 @@ import com.enviro.app.environment_backend.dto.NotificationSettingsResponse;
 import com.enviro.app.environment_backend.model.User;
 import com.enviro.app.environment_backend.service.NotificationService;
 import com.enviro.app.environment_backend.service.UserService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -13,6 +14,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -91,10 +93,27 @@ public class NotificationController {
      * PUT /api/notifications/read-all
      */
     @PutMapping("/read-all")
-    public ResponseEntity<Map<String, String>> markAllAsRead() {
+    public ResponseEntity<Map<String, Object>> markAllAsRead() {
         User user = getCurrentUser();
-        notificationService.markAllAsRead(user);
-        return ResponseEntity.ok(Map.of("message", "Đã đánh dấu tất cả thông báo là đã đọc"));
+        int updated = notificationService.markAllAsRead(user);
+        return ResponseEntity.ok(Map.of(
+                "message", "Đã đánh dấu tất cả thông báo là đã đọc",
+                "updated", updated));
+    }
+
+    /**
+     * API ĐÁNH DẤU ĐÃ ĐỌC ĐẾN MỘT MỐC
+     * PUT /api/notifications/read-up-to?upTo=2024-05-01T10:00:00Z hoặc ?notificationId={id}
+     */
+    @PutMapping("/read-up-to")
+    public ResponseEntity<Map<String, Object>> markReadUpTo(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime upTo,
+            @RequestParam(required = false) UUID notificationId) {
+        User user = getCurrentUser();
+        int updated = notificationService.markReadUpTo(user, upTo, notificationId);
+        return ResponseEntity.ok(Map.of(
+                "message", "Đã đánh dấu thông báo là đã đọc",
+                "updated", updated));
     }
 
     /**
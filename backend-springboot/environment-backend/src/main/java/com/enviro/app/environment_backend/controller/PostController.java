@@ -2,6 +2,7 @@ package com.enviro.app.environment_backend.controller;
 
 import com.enviro.app.environment_backend.dto.CommentRequest;
 import com.enviro.app.environment_backend.dto.CommentResponse;
+import com.enviro.app.environment_backend.dto.CursorPageResponse;
 import com.enviro.app.environment_backend.dto.PostRequest;
 import com.enviro.app.environment_backend.dto.PostResponse;
 import com.enviro.app.environment_backend.model.User;
@@ -16,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -44,11 +46,29 @@ public class PostController {
         return new ResponseEntity<>(post, HttpStatus.CREATED);
     }
 
+    // Feed phân trang theo con trỏ: lần đầu không gửi cursor, các lần sau gửi nextCursor của trang trước
     @GetMapping
-    public ResponseEntity<List<PostResponse>> getAllPosts() {
+    public ResponseEntity<CursorPageResponse<PostResponse>> getFeed(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         User currentUser = getCurrentUser();
-        List<PostResponse> posts = postService.getAllPosts(currentUser);
-        return ResponseEntity.ok(posts);
+        return ResponseEntity.ok(postService.getFeed(currentUser, cursor, limit));
+    }
+
+    // Timeline các nhóm cộng đồng user đã tham gia, phân trang theo con trỏ
+    @GetMapping("/timeline")
+    public ResponseEntity<CursorPageResponse<PostResponse>> getGroupTimeline(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        User currentUser = getCurrentUser();
+        return ResponseEntity.ok(postService.getGroupTimeline(currentUser, cursor, limit));
+    }
+
+    // Bài viết trending (xếp hạng theo lượt like/comment gần đây), không phân trang
+    @GetMapping("/trending")
+    public ResponseEntity<List<PostResponse>> getTrending(@RequestParam(required = false) Integer limit) {
+        User currentUser = getCurrentUser();
+        return ResponseEntity.ok(postService.getTrending(currentUser, limit));
     }
 
     @GetMapping("/{id}")
@@ -74,9 +94,19 @@ public class PostController {
         return new ResponseEntity<>(comment, HttpStatus.CREATED);
     }
 
+    // Comments phân trang theo con trỏ, mới nhất trước
     @GetMapping("/{id}/comments")
-    public ResponseEntity<List<CommentResponse>> getPostComments(@PathVariable UUID id) {
-        List<CommentResponse> comments = postService.getPostComments(id);
-        return ResponseEntity.ok(comments);
+    public ResponseEntity<CursorPageResponse<CommentResponse>> getPostComments(
+            @PathVariable UUID id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        User currentUser = getCurrentUser();
+        return ResponseEntity.ok(postService.getPostComments(id, currentUser, cursor, limit));
+    }
+
+    @GetMapping("/{id}/comments/count")
+    public ResponseEntity<Map<String, Long>> getCommentCount(@PathVariable UUID id) {
+        User currentUser = getCurrentUser();
+        return ResponseEntity.ok(Map.of("count", postService.getCommentCount(id, currentUser)));
     }
 }
\ No newline at end of file
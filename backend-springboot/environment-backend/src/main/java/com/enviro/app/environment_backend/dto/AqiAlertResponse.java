@@ -9,7 +9,7 @@ public class AqiAlertResponse {
     // True nếu AQI hiện tại vượt ngưỡng
     boolean alert;
     
-    // Chỉ số AQI hiện tại tại khu vực
+    // Chỉ số AQI hiện tại tại khu vực (thang US AQI, đúng giá trị đã so với ngưỡng)
     int currentAqi;
     
     // Ngưỡng mà người dùng đã đặt
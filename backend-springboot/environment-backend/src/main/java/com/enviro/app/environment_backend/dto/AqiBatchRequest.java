@@ -0,0 +1,18 @@
+package com.enviro.app.environment_backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * DTO yêu cầu lấy AQI cho nhiều tọa độ trong một lần gọi (ví dụ: các marker trên bản đồ).
+ */
+@Value
+public class AqiBatchRequest {
+
+    @NotEmpty(message = "Danh sách tọa độ không được để trống")
+    @Valid
+    List<AqiRequest> locations;
+}
@@ -0,0 +1,22 @@
+package com.enviro.app.environment_backend.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * DTO trả về thống kê cache AQI theo ô lưới.
+ */
+@Value
+@Builder(toBuilder = true)
+public class AqiCacheStatsResponse {
+
+    long hits;
+    long misses;
+    long evictions; // Bị loại do vượt quá kích thước tối đa
+    long expirations; // Số lần tra cứu gặp bản ghi đã hết TTL
+    int size;
+    int maxEntries;
+    long ttlSeconds;
+    double cellSizeDegrees;
+    String circuitBreakerState; // Trạng thái circuit breaker upstream (CLOSED/OPEN/HALF_OPEN)
+}
@@ -0,0 +1,20 @@
+package com.enviro.app.environment_backend.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Một mốc dự báo AQI (theo giờ).
+ */
+@Value
+@Builder
+public class AqiForecastPoint {
+
+    long timestamp; // epoch giây
+    String time; // "yyyy-MM-dd HH:mm:ss" theo giờ Việt Nam
+
+    int aqiValue; // Mức AQI 1-5 của OpenWeatherMap
+    int usAqi; // AQI theo thang US EPA (0-500)
+    String status;
+    String dominantPollutant;
+}
@@ -0,0 +1,22 @@
+package com.enviro.app.environment_backend.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * DTO trả về dự báo AQI theo giờ cho một vị trí.
+ */
+@Value
+@Builder
+public class AqiForecastResponse {
+
+    double latitude;
+    double longitude;
+
+    // Thời điểm dữ liệu dự báo được lấy từ upstream
+    String fetchedAt;
+
+    List<AqiForecastPoint> points;
+}
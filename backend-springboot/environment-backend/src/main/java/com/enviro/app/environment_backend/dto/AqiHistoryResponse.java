@@ -0,0 +1,37 @@
+package com.enviro.app.environment_backend.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * DTO trả về lịch sử AQI của một ô lưới dạng cột (columnar):
+ * phần tử thứ i của mỗi mảng thuộc cùng một mốc thời gian times[i].
+ */
+@Value
+@Builder
+public class AqiHistoryResponse {
+
+    double latitude;
+    double longitude;
+
+    // RAW, HOUR hoặc DAY
+    String resolution;
+
+    // Mốc thời gian (epoch giây)
+    long[] times;
+
+    // Chỉ số AQI (trung bình với HOUR/DAY) và giá trị lớn nhất trong khoảng
+    float[] aqi;
+    int[] aqiMax;
+
+    // AQI theo thang US EPA (0-500) tính từ nồng độ các chất tại mỗi mốc
+    float[] usAqi;
+
+    // Nồng độ các chất ô nhiễm (μg/m3)
+    float[] pm25;
+    float[] pm10;
+    float[] o3;
+    float[] no2;
+    float[] so2;
+    float[] co;
+}
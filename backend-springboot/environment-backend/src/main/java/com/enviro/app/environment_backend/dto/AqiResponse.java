@@ -7,11 +7,12 @@ import lombok.Value;
  * DTO trả về dữ liệu AQI (Chỉ số Chất lượng Không khí) cho client.
  */
 @Value // Dùng @Value để tạo lớp bất biến (immutable)
-@Builder // Dùng Builder Pattern để dễ dàng tạo đối tượng trong Service
+@Builder(toBuilder = true) // Dùng Builder Pattern để dễ dàng tạo đối tượng trong Service
 public class AqiResponse {
 
     // --- Thông tin chung ---
     int aqiValue; // Chỉ số AQI chính
+    int usAqi; // AQI theo thang US EPA (0-500), tính từ nồng độ các chất; -1 nếu không có dữ liệu
     String status; // Ví dụ: "Good", "Moderate", "Unhealthy"
     String dominantPollutant; // Chất gây ô nhiễm chính (Ví dụ: PM2.5, O3)
     
@@ -24,6 +25,9 @@ public class AqiResponse {
     String healthAdvisory; // Lời khuyên sức khỏe dựa trên AQI
     String timeObservation; // Thời gian quan sát dữ liệu (Ví dụ: "2025-10-10T14:00:00Z")
 
+    // true nếu upstream đang lỗi và đây là dữ liệu cũ lấy từ cache
+    boolean stale;
+
     // --- Dữ liệu chi tiết về các chất ô nhiễm (tùy chọn) ---
     // double pm25;
     // double o3;
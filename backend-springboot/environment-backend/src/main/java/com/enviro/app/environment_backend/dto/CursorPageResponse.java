@@ -0,0 +1,21 @@
+package com.enviro.app.environment_backend.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * DTO trả về một trang dữ liệu phân trang theo con trỏ (keyset pagination).
+ * Client gửi lại nextCursor để lấy trang tiếp theo; nextCursor = null khi đã hết dữ liệu.
+ */
+@Value
+@Builder
+public class CursorPageResponse<T> {
+
+    List<T> items;
+
+    String nextCursor;
+
+    boolean hasMore;
+}
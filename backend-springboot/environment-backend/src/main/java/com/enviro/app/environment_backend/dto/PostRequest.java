@@ -3,6 +3,8 @@ package com.enviro.app.environment_backend.dto;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Value;
 
+import java.util.UUID;
+
 /**
  * DTO cho yêu cầu tạo bài viết (FR-8.1.1)
  */
@@ -11,5 +13,8 @@ public class PostRequest {
     
     @NotBlank(message = "Nội dung bài viết không được để trống")
     String content;
+
+    // Đăng vào nhóm cộng đồng (tùy chọn); bỏ trống = đăng lên feed chung
+    UUID groupId;
 }
 
@@ -11,7 +11,7 @@ import java.util.UUID;
  * DTO trả về thông tin post (FR-8.1.1, FR-8.1.2)
  */
 @Value
-@Builder
+@Builder(toBuilder = true)
 public class PostResponse {
     
     UUID id;
@@ -26,6 +26,9 @@ public class PostResponse {
     long likesCount;
     long commentsCount;
     
+    // Nhóm cộng đồng của bài viết (null nếu đăng trên feed chung)
+    UUID groupId;
+    
     // User hiện tại đã like chưa
     boolean isLikedByCurrentUser;
     
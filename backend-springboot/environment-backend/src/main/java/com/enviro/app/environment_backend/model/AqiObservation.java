@@ -0,0 +1,44 @@
+package com.enviro.app.environment_backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Một quan sát AQI thô của một ô lưới (append-only).
+ * Dòng gọn: khóa (cell_id, observed_at epoch giây), chỉ số AQI và nồng độ các chất dạng float.
+ * Ghi/đọc qua JdbcTemplate (xem AqiHistoryService), entity chủ yếu để định nghĩa schema.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "aqi_observations")
+@IdClass(AqiObservationId.class)
+public class AqiObservation {
+
+    @Id
+    @Column(name = "cell_id")
+    private long cellId;
+
+    @Id
+    @Column(name = "observed_at")
+    private long observedAt; // epoch giây
+
+    @Column(nullable = false)
+    private short aqi;
+
+    // Nồng độ các chất ô nhiễm (μg/m3)
+    private float co;
+    private float no;
+    private float no2;
+    private float o3;
+    private float so2;
+
+    @Column(name = "pm2_5")
+    private float pm25;
+
+    private float pm10;
+    private float nh3;
+}
@@ -0,0 +1,20 @@
+package com.enviro.app.environment_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Composite Primary Key cho bảng aqi_observations
+ * Dùng với @IdClass
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AqiObservationId implements Serializable {
+
+    private long cellId;
+    private long observedAt;
+}
@@ -0,0 +1,50 @@
+package com.enviro.app.environment_backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Dữ liệu AQI đã gộp (downsample) theo giờ/ngày của một ô lưới.
+ * Được tạo bởi job downsample trong AqiHistoryService.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "aqi_rollups")
+@IdClass(AqiRollupId.class)
+public class AqiRollup {
+
+    @Id
+    @Column(name = "cell_id")
+    private long cellId;
+
+    @Id
+    @Column(length = 5)
+    private String resolution; // 'HOUR' hoặc 'DAY'
+
+    @Id
+    @Column(name = "bucket_start")
+    private long bucketStart; // epoch giây đầu giờ/đầu ngày
+
+    @Column(name = "aqi_avg")
+    private float aqiAvg;
+
+    @Column(name = "aqi_max")
+    private short aqiMax;
+
+    // Nồng độ trung bình các chất ô nhiễm (μg/m3)
+    @Column(name = "pm2_5")
+    private float pm25;
+
+    private float pm10;
+    private float o3;
+    private float no2;
+    private float so2;
+    private float co;
+
+    @Column(name = "sample_count")
+    private int sampleCount;
+}
@@ -0,0 +1,21 @@
+package com.enviro.app.environment_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Composite Primary Key cho bảng aqi_rollups
+ * Dùng với @IdClass
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AqiRollupId implements Serializable {
+
+    private long cellId;
+    private String resolution;
+    private long bucketStart;
+}
@@ -16,7 +16,10 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+    // Phục vụ phân trang comments của một post theo (created_at, id) mới nhất trước
+    @Index(name = "idx_comments_post_created_at_id", columnList = "post_id, created_at DESC, id DESC")
+})
 public class Comment {
 
     @Id
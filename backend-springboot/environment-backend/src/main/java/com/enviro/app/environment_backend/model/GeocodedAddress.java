@@ -0,0 +1,50 @@
+package com.enviro.app.environment_backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Cache bền vững địa chỉ -> tọa độ (kết quả Geocoding),
+ * khóa theo chuỗi địa chỉ đã chuẩn hóa.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "geocoded_addresses")
+public class GeocodedAddress {
+
+    @Id
+    @Column(name = "normalized_address", length = 255)
+    private String normalizedAddress;
+
+    // Địa chỉ gốc người dùng nhập
+    @Column(nullable = false)
+    private String address;
+
+    @Column(nullable = false)
+    private double latitude;
+
+    @Column(nullable = false)
+    private double longitude;
+
+    // Tên địa danh do Geocoding trả về (ví dụ: "Tân Phú")
+    @Column(name = "resolved_name")
+    private String resolvedName;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+}
@@ -15,7 +15,10 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+    // Phục vụ đếm/lấy thông báo chưa đọc và đánh dấu đã đọc hàng loạt theo user
+    @Index(name = "idx_notifications_user_status_created_at", columnList = "user_id, status, created_at")
+})
 public class Notification {
 
     @Id
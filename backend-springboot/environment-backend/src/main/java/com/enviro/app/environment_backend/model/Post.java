@@ -17,7 +17,12 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+    // Phục vụ phân trang feed theo (created_at, id) mới nhất trước
+    @Index(name = "idx_posts_created_at_id", columnList = "created_at DESC, id DESC"),
+    // Phục vụ timeline nhóm (bài viết mới nhất của các nhóm)
+    @Index(name = "idx_posts_group_created_at_id", columnList = "group_id, created_at DESC, id DESC")
+})
 public class Post {
 
     @Id
@@ -31,6 +36,20 @@ public class Post {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
+    // Nhóm cộng đồng của bài viết; null = bài viết trên feed chung
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "group_id")
+    private CommunityGroup group;
+
+    // Bộ đếm phi chuẩn hóa, được PostCounterBuffer cập nhật theo lô và đối soát định kỳ
+    @Column(name = "likes_count", nullable = false, columnDefinition = "bigint not null default 0")
+    @Builder.Default
+    private long likesCount = 0;
+
+    @Column(name = "comments_count", nullable = false, columnDefinition = "bigint not null default 0")
+    @Builder.Default
+    private long commentsCount = 0;
+
     // Liên kết với Comments (một-nhiều)
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Comment> comments;
@@ -0,0 +1,31 @@
+package com.enviro.app.environment_backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Checkpoint điểm trending của một post (forward decay).
+ * Điểm được tính theo mốc landmark: điểm thực tại thời điểm t = score * e^(-λ(t - landmark)).
+ * Được ghi định kỳ bởi TrendingPostRanker để khởi động lại không mất bảng xếp hạng.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "post_trending_scores")
+public class PostTrendingScore {
+
+    @Id
+    @Column(name = "post_id")
+    private UUID postId;
+
+    @Column(nullable = false)
+    private double score;
+
+    @Column(nullable = false)
+    private long landmark; // epoch giây của mốc tính điểm
+}
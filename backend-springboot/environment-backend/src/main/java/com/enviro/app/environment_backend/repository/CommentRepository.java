@@ -2,18 +2,60 @@ package com.enviro.app.environment_backend.repository;
 
 import com.enviro.app.environment_backend.model.Comment;
 import com.enviro.app.environment_backend.model.Post;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, UUID> {
-    
+
     /**
-     * Lấy tất cả comments của một post, sắp xếp theo thời gian mới nhất
+     * Phần SELECT dùng chung của danh sách comments: comment và thông tin tác giả trong cùng một câu truy vấn
      */
-    List<Comment> findByPostOrderByCreatedAtDesc(Post post);
-}
+    String COMMENT_SELECT =
+            "SELECT c.id AS id, c.content AS content, " +
+            "u.id AS userId, u.fullName AS userFullName, u.avatarUrl AS userAvatarUrl, " +
+            "c.createdAt AS createdAt, c.updatedAt AS updatedAt " +
+            "FROM Comment c JOIN c.user u ";
+
+    /**
+     * Trang đầu comments của một post, mới nhất trước
+     */
+    @Query(COMMENT_SELECT +
+           "WHERE c.post.id = :postId " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentRow> findPageFirst(@Param("postId") UUID postId, Pageable pageable);
+
+    /**
+     * Trang tiếp theo: các comment đứng sau con trỏ (createdAt, id) theo thứ tự mới nhất trước
+     */
+    @Query(COMMENT_SELECT +
+           "WHERE c.post.id = :postId " +
+           "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentRow> findPageAfter(@Param("postId") UUID postId,
+                                   @Param("createdAt") OffsetDateTime createdAt,
+                                   @Param("id") UUID id,
+                                   Pageable pageable);
+
+    /**
+     * Đếm số comments của một post (không load entity)
+     */
+    long countByPost(Post post);
 
+    interface CommentRow {
+        UUID getId();
+        String getContent();
+        UUID getUserId();
+        String getUserFullName();
+        String getUserAvatarUrl();
+        OffsetDateTime getCreatedAt();
+        OffsetDateTime getUpdatedAt();
+    }
+}
@@ -0,0 +1,18 @@
+package com.enviro.app.environment_backend.repository;
+
+import com.enviro.app.environment_backend.model.GeocodedAddress;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface GeocodedAddressRepository extends JpaRepository<GeocodedAddress, String> {
+
+    /**
+     * Tọa độ của tất cả vị trí mặc định đã geocode - dùng cho prefetch AQI
+     */
+    @Query("SELECT g.latitude AS latitude, g.longitude AS longitude FROM GeocodedAddress g")
+    List<SavedLocationRepository.Coordinates> findAllCoordinates();
+}
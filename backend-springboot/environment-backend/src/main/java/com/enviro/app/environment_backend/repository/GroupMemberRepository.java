@@ -5,10 +5,13 @@ import com.enviro.app.environment_backend.model.GroupMember;
 import com.enviro.app.environment_backend.model.GroupMemberId;
 import com.enviro.app.environment_backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Repository
 public interface GroupMemberRepository extends JpaRepository<GroupMember, GroupMemberId> {
@@ -20,5 +23,18 @@ public interface GroupMemberRepository extends JpaRepository<GroupMember, GroupM
     boolean existsByUserAndGroup(User user, CommunityGroup group);
     
     Optional<GroupMember> findByUserAndGroup(User user, CommunityGroup group);
+
+    boolean existsByUserIdAndGroupId(UUID userId, UUID groupId);
+
+    /**
+     * Các nhóm user đang tham gia cùng số thành viên (để chọn fan-out khi ghi hay khi đọc)
+     */
+    @Query("SELECT g.id AS groupId, g.memberCount AS memberCount FROM GroupMember m JOIN m.group g WHERE m.user.id = :userId")
+    List<MembershipView> findMembershipsByUserId(@Param("userId") UUID userId);
+
+    interface MembershipView {
+        UUID getGroupId();
+        Integer getMemberCount();
+    }
 }
 
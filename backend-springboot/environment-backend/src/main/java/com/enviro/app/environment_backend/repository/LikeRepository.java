@@ -5,9 +5,16 @@ import com.enviro.app.environment_backend.model.LikeId;
 import com.enviro.app.environment_backend.model.Post;
 import com.enviro.app.environment_backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Repository
 public interface LikeRepository extends JpaRepository<Like, LikeId> {
@@ -26,5 +33,32 @@ public interface LikeRepository extends JpaRepository<Like, LikeId> {
      * Đếm số lượng likes của một post
      */
     long countByPost(Post post);
-}
 
+    /**
+     * Thêm like nếu chưa có, trong một câu lệnh duy nhất (khóa chính (user_id, post_id) chống trùng).
+     * Trả về 1 nếu đã thêm, 0 nếu like đã tồn tại.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO likes (user_id, post_id, created_at) VALUES (:userId, :postId, CURRENT_TIMESTAMP) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("userId") UUID userId, @Param("postId") UUID postId);
+
+    /**
+     * Xóa like theo khóa (user, post), trả về số dòng đã xóa (0 hoặc 1)
+     */
+    @Modifying
+    @Query("DELETE FROM Like l WHERE l.user.id = :userId AND l.post.id = :postId")
+    int deleteByIds(@Param("userId") UUID userId, @Param("postId") UUID postId);
+
+    /**
+     * ID các bài viết được tạo sau `since` mà user đã like
+     */
+    @Query("SELECT l.post.id FROM Like l WHERE l.user.id = :userId AND l.post.createdAt > :since")
+    List<UUID> findPostIdsLikedSince(@Param("userId") UUID userId, @Param("since") OffsetDateTime since);
+
+    /**
+     * Trong các bài viết cho trước, những bài user đã like
+     */
+    @Query("SELECT l.post.id FROM Like l WHERE l.user.id = :userId AND l.post.id IN :postIds")
+    List<UUID> findLikedPostIdsAmong(@Param("userId") UUID userId, @Param("postIds") Collection<UUID> postIds);
+}
@@ -4,10 +4,12 @@ import com.enviro.app.environment_backend.model.Notification;
 import com.enviro.app.environment_backend.model.NotificationStatus;
 import com.enviro.app.environment_backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -16,13 +18,14 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
     
     /**
      * Lấy tất cả notifications của một user, sắp xếp theo thời gian mới nhất
+     * (cùng thời điểm thì theo id, khớp thứ tự của markReadUpToNotification)
      */
-    List<Notification> findByUserOrderByCreatedAtDesc(User user);
+    List<Notification> findByUserOrderByCreatedAtDescIdDesc(User user);
     
     /**
      * Lấy notifications chưa đọc của một user
      */
-    List<Notification> findByUserAndStatusOrderByCreatedAtDesc(User user, NotificationStatus status);
+    List<Notification> findByUserAndStatusOrderByCreatedAtDescIdDesc(User user, NotificationStatus status);
     
     /**
      * Đếm số notifications chưa đọc của một user
@@ -34,5 +37,37 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
      */
     @Query("SELECT n FROM Notification n WHERE n.user.id = :userId ORDER BY n.createdAt DESC")
     List<Notification> findByUserIdOrderByCreatedAtDesc(@Param("userId") UUID userId);
+
+    /**
+     * Đánh dấu đã đọc mọi notification chưa đọc của user trong một câu UPDATE, trả về số dòng đã cập nhật
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Notification n SET n.status = com.enviro.app.environment_backend.model.NotificationStatus.READ " +
+           "WHERE n.user.id = :userId " +
+           "AND n.status = com.enviro.app.environment_backend.model.NotificationStatus.UNREAD")
+    int markAllRead(@Param("userId") UUID userId);
+
+    /**
+     * Đánh dấu đã đọc các notification chưa đọc của user được tạo đến thời điểm `upTo` (bao gồm)
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Notification n SET n.status = com.enviro.app.environment_backend.model.NotificationStatus.READ " +
+           "WHERE n.user.id = :userId " +
+           "AND n.status = com.enviro.app.environment_backend.model.NotificationStatus.UNREAD " +
+           "AND n.createdAt <= :upTo")
+    int markReadUpTo(@Param("userId") UUID userId, @Param("upTo") OffsetDateTime upTo);
+
+    /**
+     * Đánh dấu đã đọc đến một notification của chính user đó (bao gồm nó), so sánh theo (createdAt, id)
+     * như con trỏ keyset nên các notification cùng thời điểm nhưng đứng trước mốc trong danh sách không bị đánh dấu.
+     * Truy vấn con tương quan, vẫn một câu lệnh. Notification không tồn tại hoặc thuộc user khác: không cập nhật dòng nào.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Notification n SET n.status = com.enviro.app.environment_backend.model.NotificationStatus.READ " +
+           "WHERE n.user.id = :userId " +
+           "AND n.status = com.enviro.app.environment_backend.model.NotificationStatus.UNREAD " +
+           "AND EXISTS (SELECT 1 FROM Notification m WHERE m.id = :notificationId AND m.user.id = :userId " +
+           "AND (n.createdAt < m.createdAt OR (n.createdAt = m.createdAt AND n.id <= m.id)))")
+    int markReadUpToNotification(@Param("userId") UUID userId, @Param("notificationId") UUID notificationId);
 }
 
@@ -1,26 +1,118 @@
 package com.enviro.app.environment_backend.repository;
 
 import com.enviro.app.environment_backend.model.Post;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, UUID> {
     
     /**
-     * Lấy tất cả posts, sắp xếp theo thời gian mới nhất
+     * Phần SELECT dùng chung của feed: thông tin post, tác giả, số likes/comments (cột phi chuẩn hóa)
+     * và cờ "đã like" của user hiện tại được lấy trong cùng một câu truy vấn (không N+1)
      */
-    List<Post> findAllByOrderByCreatedAtDesc();
-    
+    String FEED_SELECT =
+            "SELECT p.id AS id, p.content AS content, " +
+            "u.id AS userId, u.fullName AS userFullName, u.avatarUrl AS userAvatarUrl, " +
+            "p.likesCount AS likesCount, p.commentsCount AS commentsCount, " +
+            "(CASE WHEN EXISTS (SELECT 1 FROM Like ml WHERE ml.post = p AND ml.user.id = :userId) " +
+            "THEN true ELSE false END) AS likedByCurrentUser, " +
+            "p.group.id AS groupId, p.createdAt AS createdAt, p.updatedAt AS updatedAt " +
+            "FROM Post p JOIN p.user u ";
+
+    /**
+     * Trang đầu của feed chung (bài viết không thuộc nhóm), mới nhất trước
+     */
+    @Query(FEED_SELECT + "WHERE p.group IS NULL ORDER BY p.createdAt DESC, p.id DESC")
+    List<FeedRow> findFeedFirstPage(@Param("userId") UUID userId, Pageable pageable);
+
+    /**
+     * Trang tiếp theo của feed: các post đứng sau con trỏ (createdAt, id) theo thứ tự mới nhất trước
+     */
+    @Query(FEED_SELECT +
+           "WHERE p.group IS NULL AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<FeedRow> findFeedPageAfter(@Param("userId") UUID userId,
+                                    @Param("createdAt") OffsetDateTime createdAt,
+                                    @Param("id") UUID id,
+                                    Pageable pageable);
+
+    /**
+     * Một post theo ID, cùng dạng dữ liệu với feed
+     */
+    @Query(FEED_SELECT + "WHERE p.id = :postId")
+    Optional<FeedRow> findFeedRowById(@Param("postId") UUID postId, @Param("userId") UUID userId);
+
+    /**
+     * Các post theo danh sách ID (thứ tự không xác định), cùng dạng dữ liệu với feed
+     */
+    @Query(FEED_SELECT + "WHERE p.id IN :ids")
+    List<FeedRow> findFeedRowsByIds(@Param("ids") Collection<UUID> ids, @Param("userId") UUID userId);
+
+    /**
+     * Nhóm của một post (groupId = null với bài viết chung), dùng để kiểm tra quyền truy cập bài viết nhóm
+     */
+    @Query("SELECT p.id AS id, g.id AS groupId FROM Post p LEFT JOIN p.group g WHERE p.id = :postId")
+    Optional<PostGroup> findPostGroupById(@Param("postId") UUID postId);
+
+    /**
+     * Số comments của một post từ cột phi chuẩn hóa (không đếm bảng comments)
+     */
+    @Query("SELECT p.commentsCount FROM Post p WHERE p.id = :postId")
+    Optional<Long> findCommentsCountById(@Param("postId") UUID postId);
+
+    /**
+     * Khóa (id, createdAt) các bài viết mới nhất trong các nhóm, dùng cho timeline nhóm
+     */
+    @Query("SELECT p.id AS id, p.createdAt AS createdAt FROM Post p WHERE p.group.id IN :groupIds " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostKey> findGroupPostKeys(@Param("groupIds") Collection<UUID> groupIds, Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.createdAt AS createdAt FROM Post p WHERE p.group.id IN :groupIds " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostKey> findGroupPostKeysAfter(@Param("groupIds") Collection<UUID> groupIds,
+                                         @Param("createdAt") OffsetDateTime createdAt,
+                                         @Param("id") UUID id,
+                                         Pageable pageable);
+
     /**
      * Lấy posts của một user cụ thể
      */
     @Query("SELECT p FROM Post p WHERE p.user.id = :userId ORDER BY p.createdAt DESC")
     List<Post> findByUserIdOrderByCreatedAtDesc(@Param("userId") UUID userId);
+
+    interface FeedRow {
+        UUID getId();
+        String getContent();
+        UUID getUserId();
+        String getUserFullName();
+        String getUserAvatarUrl();
+        long getLikesCount();
+        long getCommentsCount();
+        boolean isLikedByCurrentUser();
+        UUID getGroupId();
+        OffsetDateTime getCreatedAt();
+        OffsetDateTime getUpdatedAt();
+    }
+
+    interface PostGroup {
+        UUID getId();
+        UUID getGroupId();
+    }
+
+    interface PostKey {
+        UUID getId();
+        OffsetDateTime getCreatedAt();
+    }
 }
 
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.enviro.app.environment_backend.model.SavedLocation;
 
@@ -13,4 +14,21 @@ public interface SavedLocationRepository extends JpaRepository<SavedLocation, UU
     
     // Đếm số vị trí đã lưu của một user
     long countByUserId(UUID userId);
+
+    // Tọa độ của tất cả vị trí đã lưu (không load entity) - dùng cho prefetch AQI
+    @Query("SELECT s.latitude AS latitude, s.longitude AS longitude FROM SavedLocation s")
+    List<Coordinates> findAllCoordinates();
+
+    // Chủ sở hữu + tọa độ của tất cả vị trí đã lưu - dùng cho chỉ mục cảnh báo AQI
+    @Query("SELECT s.user.id AS userId, s.latitude AS latitude, s.longitude AS longitude FROM SavedLocation s")
+    List<UserCoordinates> findAllUserCoordinates();
+
+    interface Coordinates {
+        double getLatitude();
+        double getLongitude();
+    }
+
+    interface UserCoordinates extends Coordinates {
+        UUID getUserId();
+    }
 }
\ No newline at end of file
@@ -1,9 +1,11 @@
 package com.enviro.app.environment_backend.repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository; // Cần import Optional
 
 import com.enviro.app.environment_backend.model.User;
@@ -12,4 +14,17 @@ import com.enviro.app.environment_backend.model.User;
 public interface UserRepository extends JpaRepository<User, UUID> {
     // Phương thức custom: Spring Data JPA sẽ tự động triển khai dựa trên tên phương thức
     Optional<User> findByEmail(String email); 
+
+    // Vị trí mặc định (chuỗi địa chỉ) của các user còn nhận cảnh báo AQI (chưa có settings = mặc định bật)
+    // - dùng cho chỉ mục cảnh báo AQI
+    @Query("SELECT u.id AS userId, u.defaultLocation AS defaultLocation FROM User u " +
+           "LEFT JOIN NotificationSettings s ON s.userId = u.id " +
+           "WHERE u.defaultLocation IS NOT NULL AND u.defaultLocation <> '' " +
+           "AND (s.userId IS NULL OR s.aqiAlertEnabled = true)")
+    List<DefaultLocationView> findAlertDefaultLocations();
+
+    interface DefaultLocationView {
+        UUID getUserId();
+        String getDefaultLocation();
+    }
 }
\ No newline at end of file
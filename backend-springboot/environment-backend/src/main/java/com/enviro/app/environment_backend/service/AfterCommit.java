@@ -0,0 +1,27 @@
+package com.enviro.app.environment_backend.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Chạy một tác vụ trong bộ nhớ (cache, bộ đếm, timeline) chỉ sau khi transaction hiện tại commit,
+ * để trạng thái trong bộ nhớ không đi trước dữ liệu trong DB. Không có transaction thì chạy ngay.
+ */
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.enviro.app.environment_backend.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.enviro.app.environment_backend.dto.AqiResponse;
+import com.enviro.app.environment_backend.model.GeocodedAddress;
+import com.enviro.app.environment_backend.model.NotificationSettings;
+import com.enviro.app.environment_backend.model.NotificationType;
+import com.enviro.app.environment_backend.model.SavedLocation;
+import com.enviro.app.environment_backend.repository.GeocodedAddressRepository;
+import com.enviro.app.environment_backend.repository.NotificationSettingsRepository;
+import com.enviro.app.environment_backend.repository.SavedLocationRepository;
+import com.enviro.app.environment_backend.repository.UserRepository;
+
+/**
+ * Cảnh báo AQI phía server (FR-2.2.1): mỗi khi một ô lưới được làm mới, tìm các user có
+ * vị trí đã lưu / vị trí mặc định nằm trong ô đó và tạo Notification nếu vượt ngưỡng.
+ * Chỉ mục ô lưới -> user giúp mỗi lần làm mới chỉ tốn O(số user trong ô),
+ * client không cần poll /api/aqi/check-alert nữa.
+ */
+@Component
+public class AqiAlertEngine {
+
+    private static final int GEOCODED_LOOKUP_CHUNK = 1000;
+
+    private final AqiGridCache aqiCache;
+    private final NotificationService notificationService;
+    private final NotificationSettingsRepository settingsRepository;
+    private final SavedLocationRepository savedLocationRepository;
+    private final UserRepository userRepository;
+    private final GeocodedAddressRepository geocodedAddressRepository;
+    private final GeocodingCacheService geocodingCacheService;
+    private final ExecutorService aqiExecutor;
+
+    // Ô lưới -> các user theo dõi ô đó, và chiều ngược lại để cập nhật khi user đổi vị trí
+    private volatile Map<GridCell, Set<UUID>> subscribersByCell = new ConcurrentHashMap<>();
+    private volatile Map<UUID, Set<GridCell>> cellsByUser = new ConcurrentHashMap<>();
+
+    // Lần cảnh báo gần nhất của mỗi user, tránh gửi lặp lại mỗi lần ô được làm mới
+    private final Map<UUID, Long> lastAlertAt = new ConcurrentHashMap<>();
+
+    @Value("${aqi.alerts.enabled:true}")
+    private boolean enabled;
+
+    @Value("${aqi.alerts.cooldown-minutes:180}")
+    private long cooldownMinutes;
+
+    public AqiAlertEngine(AqiGridCache aqiCache,
+                          NotificationService notificationService,
+                          NotificationSettingsRepository settingsRepository,
+                          SavedLocationRepository savedLocationRepository,
+                          UserRepository userRepository,
+                          GeocodedAddressRepository geocodedAddressRepository,
+                          GeocodingCacheService geocodingCacheService,
+                          @Qualifier("aqiExecutor") ExecutorService aqiExecutor) {
+        this.aqiCache = aqiCache;
+        this.notificationService = notificationService;
+        this.settingsRepository = settingsRepository;
+        this.savedLocationRepository = savedLocationRepository;
+        this.userRepository = userRepository;
+        this.geocodedAddressRepository = geocodedAddressRepository;
+        this.geocodingCacheService = geocodingCacheService;
+        this.aqiExecutor = aqiExecutor;
+    }
+
+    /**
+     * Đánh giá cảnh báo khi ô lưới được làm mới (chạy trên pool AQI, không chặn luồng gọi upstream)
+     */
+    @EventListener
+    public void onCellRefreshed(AqiCellRefreshedEvent event) {
+        if (!enabled || !subscribersByCell.containsKey(event.getCell())) {
+            return;
+        }
+        try {
+            aqiExecutor.execute(() -> evaluate(event.getCell(), event.getResponse()));
+        } catch (RejectedExecutionException e) {
+            // Pool đầy hoặc đang shutdown - bỏ qua, ô sẽ được đánh giá lại ở lần làm mới sau
+        }
+    }
+
+    void evaluate(GridCell cell, AqiResponse response) {
+        Set<UUID> subscribers = subscribersByCell.get(cell);
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+
+        int aqiValue = response.getUsAqi() >= 0 ? response.getUsAqi() : approximateUsAqi(response.getAqiValue());
+        long now = System.currentTimeMillis();
+        long cooldownMillis = cooldownMinutes * 60_000;
+
+        // Lọc user đang trong thời gian chờ trước khi chạm DB
+        List<UUID> candidates = new ArrayList<>(subscribers.size());
+        for (UUID userId : subscribers) {
+            Long last = lastAlertAt.get(userId);
+            if (last == null || now - last >= cooldownMillis) {
+                candidates.add(userId);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        // Một truy vấn cho cả ô; user chưa có settings dùng mặc định (bật, ngưỡng 100)
+        Map<UUID, NotificationSettings> settingsByUser = new HashMap<>();
+        for (NotificationSettings settings : settingsRepository.findAllById(candidates)) {
+            settingsByUser.put(settings.getUserId(), settings);
+        }
+
+        List<UUID> recipients = new ArrayList<>();
+        for (UUID userId : candidates) {
+            NotificationSettings settings = settingsByUser.get(userId);
+            boolean alertEnabled = settings == null || Boolean.TRUE.equals(settings.getAqiAlertEnabled());
+            int threshold = settings != null && settings.getAqiThreshold() != null ? settings.getAqiThreshold() : 100;
+            if (alertEnabled && aqiValue > threshold && lastAlertAt.merge(userId, now,
+                    (old, current) -> current - old >= cooldownMillis ? current : old) == now) {
+                recipients.add(userId);
+            }
+        }
+        if (recipients.isEmpty()) {
+            return;
+        }
+
+        String place = response.getCity() != null ? response.getCity() : "khu vực của bạn";
+        notificationService.createNotifications(recipients,
+                "Cảnh báo chất lượng không khí",
+                "Chỉ số AQI tại " + place + " hiện ở mức " + response.getStatus() + " (" + aqiValue
+                        + "), vượt ngưỡng cảnh báo bạn đã cài đặt. " + response.getHealthAdvisory(),
+                NotificationType.AQI_ALERT,
+                Long.toString(cell.getId()));
+    }
+
+    /**
+     * Cập nhật chỉ mục cho một user (gọi sau khi user lưu vị trí hoặc đổi vị trí mặc định)
+     */
+    public synchronized void reindexUser(UUID userId) {
+        Set<GridCell> cells = new HashSet<>();
+        for (SavedLocation location : savedLocationRepository.findByUserId(userId)) {
+            cells.add(aqiCache.cellOf(location.getLatitude(), location.getLongitude()));
+        }
+        userRepository.findById(userId)
+                .map(user -> user.getDefaultLocation())
+                .filter(address -> !GeocodingCacheService.normalize(address).isEmpty())
+                .map(geocodingCacheService::getCoordinates)
+                .ifPresent(coords -> cells.add(aqiCache.cellOf(coords.getLat(), coords.getLon())));
+
+        Set<GridCell> previous = cellsByUser.getOrDefault(userId, Collections.emptySet());
+        for (GridCell cell : previous) {
+            if (!cells.contains(cell)) {
+                Set<UUID> subscribers = subscribersByCell.get(cell);
+                if (subscribers != null) {
+                    subscribers.remove(userId);
+                    if (subscribers.isEmpty()) {
+                        subscribersByCell.remove(cell, subscribers);
+                    }
+                }
+            }
+        }
+        for (GridCell cell : cells) {
+            subscribersByCell.computeIfAbsent(cell, c -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+        if (cells.isEmpty()) {
+            cellsByUser.remove(userId);
+        } else {
+            cellsByUser.put(userId, cells);
+        }
+    }
+
+    /**
+     * Dựng lại toàn bộ chỉ mục từ DB (lúc khởi động và định kỳ, sửa sai lệch nếu có)
+     */
+    @Scheduled(fixedDelayString = "${aqi.alerts.index-rebuild-ms:900000}", initialDelayString = "${aqi.alerts.index-initial-delay-ms:10000}")
+    public synchronized void rebuildIndex() {
+        if (!enabled) {
+            return;
+        }
+
+        Map<GridCell, Set<UUID>> byCell = new ConcurrentHashMap<>();
+        Map<UUID, Set<GridCell>> byUser = new ConcurrentHashMap<>();
+
+        for (SavedLocationRepository.UserCoordinates c : savedLocationRepository.findAllUserCoordinates()) {
+            index(byCell, byUser, c.getUserId(), aqiCache.cellOf(c.getLatitude(), c.getLongitude()));
+        }
+
+        // Vị trí mặc định: chỉ user còn bật cảnh báo, tọa độ tra theo khóa trong geocoded_addresses
+        // (đã geocode khi user cập nhật profile) thay vì đọc cả bảng
+        List<UserRepository.DefaultLocationView> defaults = userRepository.findAlertDefaultLocations();
+        Map<String, GeocodedAddress> geocoded = findGeocoded(defaults);
+        for (UserRepository.DefaultLocationView view : defaults) {
+            GeocodedAddress address = geocoded.get(GeocodingCacheService.normalize(view.getDefaultLocation()));
+            if (address != null) {
+                index(byCell, byUser, view.getUserId(), aqiCache.cellOf(address.getLatitude(), address.getLongitude()));
+            }
+        }
+
+        subscribersByCell = byCell;
+        cellsByUser = byUser;
+        System.out.println("AQI alerts: chỉ mục gồm " + byUser.size() + " user trên " + byCell.size() + " ô lưới.");
+    }
+
+    private Map<String, GeocodedAddress> findGeocoded(List<UserRepository.DefaultLocationView> defaults) {
+        Set<String> keys = new HashSet<>();
+        for (UserRepository.DefaultLocationView view : defaults) {
+            keys.add(GeocodingCacheService.normalize(view.getDefaultLocation()));
+        }
+        List<String> ordered = new ArrayList<>(keys);
+        Map<String, GeocodedAddress> geocoded = new HashMap<>();
+        // Chia nhỏ danh sách IN để không vượt giới hạn tham số của driver
+        for (int from = 0; from < ordered.size(); from += GEOCODED_LOOKUP_CHUNK) {
+            List<String> chunk = ordered.subList(from, Math.min(from + GEOCODED_LOOKUP_CHUNK, ordered.size()));
+            for (GeocodedAddress address : geocodedAddressRepository.findAllById(chunk)) {
+                geocoded.put(address.getNormalizedAddress(), address);
+            }
+        }
+        return geocoded;
+    }
+
+    private void index(Map<GridCell, Set<UUID>> byCell, Map<UUID, Set<GridCell>> byUser, UUID userId, GridCell cell) {
+        byCell.computeIfAbsent(cell, c -> ConcurrentHashMap.newKeySet()).add(userId);
+        byUser.computeIfAbsent(userId, u -> new HashSet<>()).add(cell);
+    }
+
+    /**
+     * Ngưỡng trong NotificationSettings theo thang US AQI (0-500). Khi không tính được AQI từ nồng độ,
+     * quy đổi mức 1-5 của OpenWeatherMap về cận trên tương ứng của thang US AQI.
+     */
+    private int approximateUsAqi(int level) {
+        return switch (level) {
+            case 1 -> 50;
+            case 2 -> 100;
+            case 3 -> 150;
+            case 4 -> 200;
+            case 5 -> 300;
+            default -> -1;
+        };
+    }
+}
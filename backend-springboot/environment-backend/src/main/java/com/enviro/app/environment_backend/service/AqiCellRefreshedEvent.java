@@ -0,0 +1,21 @@
+package com.enviro.app.environment_backend.service;
+
+import com.enviro.app.environment_backend.dto.AqiDataPoint;
+import com.enviro.app.environment_backend.dto.AqiResponse;
+
+import lombok.Value;
+
+/**
+ * Sự kiện phát ra mỗi khi AQI của một ô lưới được làm mới từ upstream.
+ */
+@Value
+public class AqiCellRefreshedEvent {
+
+    GridCell cell;
+
+    // Response đã dựng (tọa độ là tâm ô)
+    AqiResponse response;
+
+    // Dữ liệu thô từ upstream (nồng độ các chất ô nhiễm, thời điểm đo)
+    AqiDataPoint dataPoint;
+}
@@ -0,0 +1,178 @@
+package com.enviro.app.environment_backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.enviro.app.environment_backend.dto.AqiDataPoint;
+import com.enviro.app.environment_backend.dto.AqiForecastPoint;
+import com.enviro.app.environment_backend.dto.AqiForecastResponse;
+
+/**
+ * Kho dự báo AQI theo giờ cho từng ô lưới.
+ * Dự báo của các ô nóng được AqiPrefetchScheduler tải về mỗi chu kỳ làm mới, lưu gọn bằng mảng nguyên thủy;
+ * /api/aqi/forecast chỉ đọc từ kho (ô chưa có dữ liệu được tải đúng một lần qua single-flight).
+ */
+@Service
+public class AqiForecastService {
+
+    private final AqiService aqiService;
+    private final AqiGridCache aqiCache;
+    private final AqiPresenter aqiPresenter;
+    private final AqiSubIndexCalculator subIndexCalculator;
+
+    private final Map<GridCell, Forecast> forecasts = new ConcurrentHashMap<>();
+    private final SingleFlight<GridCell, Forecast> forecastFlights = new SingleFlight<>();
+
+    // Dự báo của một ô được coi là cũ sau khoảng này
+    @Value("${aqi.forecast.refresh-window-minutes:60}")
+    private long refreshWindowMinutes;
+
+    @Value("${aqi.forecast.max-hours:96}")
+    private int maxHours;
+
+    @Value("${aqi.forecast.max-entries:10000}")
+    private int maxEntries;
+
+    public AqiForecastService(AqiService aqiService,
+                              AqiGridCache aqiCache,
+                              AqiPresenter aqiPresenter,
+                              AqiSubIndexCalculator subIndexCalculator) {
+        this.aqiService = aqiService;
+        this.aqiCache = aqiCache;
+        this.aqiPresenter = aqiPresenter;
+        this.subIndexCalculator = subIndexCalculator;
+    }
+
+    /**
+     * Dự báo AQI cho tọa độ trong 'hours' giờ tới, bắt đầu từ giờ hiện tại
+     */
+    public AqiForecastResponse getForecast(double lat, double lon, int hours) {
+        GridCell cell = aqiCache.cellOf(lat, lon);
+        Forecast forecast = forecasts.get(cell);
+        if (forecast == null) {
+            forecast = forecastFlights.execute(cell, () -> load(cell));
+            if (forecast == null) {
+                return null;
+            }
+        }
+        forecast.lastAccess = System.currentTimeMillis();
+
+        long fromSecond = System.currentTimeMillis() / 1000 - 3600;
+        int limit = Math.max(1, Math.min(hours, maxHours));
+        List<AqiForecastPoint> points = new ArrayList<>(Math.min(limit, forecast.times.length));
+        for (int i = 0; i < forecast.times.length && points.size() < limit; i++) {
+            if (forecast.times[i] < fromSecond) {
+                continue;
+            }
+            points.add(AqiForecastPoint.builder()
+                    .timestamp(forecast.times[i])
+                    .time(aqiPresenter.formatObservationTime(forecast.times[i]))
+                    .aqiValue(forecast.levels[i])
+                    .usAqi(forecast.usAqi[i])
+                    .status(aqiPresenter.statusOf(forecast.levels[i]))
+                    .dominantPollutant(forecast.dominant[i] >= 0
+                            ? AqiSubIndexCalculator.label(forecast.dominant[i])
+                            : AqiPresenter.NOT_AVAILABLE)
+                    .build());
+        }
+
+        return AqiForecastResponse.builder()
+                .latitude(lat)
+                .longitude(lon)
+                .fetchedAt(aqiPresenter.formatObservationTime(forecast.fetchedAt / 1000))
+                .points(points)
+                .build();
+    }
+
+    /**
+     * Tải lại dự báo cho ô (dùng bởi job prefetch)
+     */
+    public boolean refresh(GridCell cell) {
+        return forecastFlights.execute(cell, () -> load(cell)) != null;
+    }
+
+    /**
+     * Ô chưa có dự báo hoặc dự báo đã cũ hơn chu kỳ làm mới
+     */
+    public boolean needsRefresh(GridCell cell) {
+        Forecast forecast = forecasts.get(cell);
+        return forecast == null
+                || System.currentTimeMillis() - forecast.fetchedAt >= refreshWindowMinutes * 60_000;
+    }
+
+    /**
+     * Các ô có dự báo được đọc trong khoảng thời gian gần đây
+     */
+    public List<GridCell> recentlyRequestedCells(long sinceMillis) {
+        long threshold = System.currentTimeMillis() - sinceMillis;
+        List<GridCell> cells = new ArrayList<>();
+        forecasts.forEach((cell, forecast) -> {
+            if (forecast.lastAccess >= threshold) {
+                cells.add(cell);
+            }
+        });
+        return cells;
+    }
+
+    /**
+     * Bỏ các dự báo không còn được làm mới (ô đã nguội) để kho không phình mãi
+     */
+    public void evictExpired(Set<GridCell> hotCells) {
+        long expiredBefore = System.currentTimeMillis() - 3 * refreshWindowMinutes * 60_000;
+        forecasts.entrySet().removeIf(e -> e.getValue().fetchedAt < expiredBefore && !hotCells.contains(e.getKey()));
+    }
+
+    private Forecast load(GridCell cell) {
+        List<AqiDataPoint> dataPoints = aqiService.fetchForecast(cell);
+        if (dataPoints == null || dataPoints.isEmpty()) {
+            return null;
+        }
+        if (forecasts.size() >= maxEntries && !forecasts.containsKey(cell)) {
+            System.err.println("AQI forecast: kho đã đầy (" + maxEntries + " ô), bỏ qua ô " + cell);
+            return null;
+        }
+
+        Forecast forecast = new Forecast(dataPoints.size());
+        double[] subIndices = new double[AqiSubIndexCalculator.POLLUTANT_COUNT];
+        for (int i = 0; i < dataPoints.size(); i++) {
+            AqiDataPoint dataPoint = dataPoints.get(i);
+            int dominant = subIndexCalculator.subIndices(dataPoint.getComponents(), subIndices);
+            forecast.times[i] = dataPoint.getDt();
+            forecast.levels[i] = dataPoint.getMain() != null ? (byte) dataPoint.getMain().getAqi() : 0;
+            forecast.usAqi[i] = dominant >= 0 ? (short) Math.round(subIndices[dominant]) : -1;
+            forecast.dominant[i] = (byte) dominant;
+        }
+
+        // Giữ thời điểm đọc cuối của bản cũ để ô vẫn được xem là nóng
+        Forecast previous = forecasts.put(cell, forecast);
+        if (previous != null) {
+            forecast.lastAccess = previous.lastAccess;
+        }
+        return forecast;
+    }
+
+    /**
+     * Dự báo của một ô lưới: các mảng song song, phần tử i ứng với giờ times[i]
+     */
+    private static final class Forecast {
+        private final long fetchedAt = System.currentTimeMillis();
+        private volatile long lastAccess;
+        private final long[] times;
+        private final byte[] levels;
+        private final short[] usAqi;
+        private final byte[] dominant;
+
+        private Forecast(int size) {
+            this.times = new long[size];
+            this.levels = new byte[size];
+            this.usAqi = new short[size];
+            this.dominant = new byte[size];
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.enviro.app.environment_backend.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.enviro.app.environment_backend.dto.AqiCacheStatsResponse;
+import com.enviro.app.environment_backend.dto.AqiResponse;
+
+/**
+ * Cache AQI theo ô lưới (grid cell) đặt trước OpenWeatherMap.
+ * - Khóa: tọa độ đã được snap về ô lưới (xem GridCell)
+ * - TTL: khớp với chu kỳ làm mới dữ liệu phía upstream
+ * - Giới hạn bộ nhớ: LRU theo số lượng phần tử tối đa
+ */
+@Component
+public class AqiGridCache {
+
+    private final double cellSize;
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    // LinkedHashMap theo thứ tự truy cập => phần tử cũ nhất là phần tử ít dùng nhất
+    private final LinkedHashMap<GridCell, Entry> entries;
+
+    public AqiGridCache(@Value("${aqi.cache.cell-size-degrees:0.02}") double cellSize,
+                        @Value("${aqi.cache.ttl-seconds:900}") long ttlSeconds,
+                        @Value("${aqi.cache.max-entries:10000}") int maxEntries) {
+        this.cellSize = cellSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<GridCell, Entry> eldest) {
+                if (size() > AqiGridCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public GridCell cellOf(double lat, double lon) {
+        return GridCell.of(lat, lon, cellSize);
+    }
+
+    /**
+     * Lấy AQI còn hạn của ô lưới, trả về null nếu chưa có hoặc đã hết TTL.
+     * Bản ghi hết hạn vẫn được giữ lại (xem getStale) cho tới khi bị LRU loại.
+     */
+    public synchronized AqiResponse get(GridCell cell) {
+        Entry entry = entries.get(cell);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.fetchedAt > ttlMillis) {
+            expirations.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        entry.lastAccess = System.currentTimeMillis();
+        return entry.response;
+    }
+
+    /**
+     * Lấy giá trị gần nhất của ô lưới bất kể TTL (dùng khi upstream lỗi - stale-while-revalidate)
+     */
+    public synchronized AqiResponse getStale(GridCell cell) {
+        Entry entry = entries.get(cell);
+        return entry != null ? entry.response : null;
+    }
+
+    public synchronized void put(GridCell cell, AqiResponse response) {
+        long now = System.currentTimeMillis();
+        Entry previous = entries.get(cell);
+        // Giữ nguyên thời điểm người dùng đọc gần nhất khi bản ghi được làm mới
+        entries.put(cell, new Entry(response, now, previous != null ? previous.lastAccess : now));
+    }
+
+    /**
+     * true nếu ô chưa có dữ liệu hoặc sẽ hết hạn trong khoảng leadMillis tới (dùng cho prefetch)
+     */
+    public synchronized boolean needsRefresh(GridCell cell, long leadMillis) {
+        Entry entry = entries.get(cell);
+        return entry == null || System.currentTimeMillis() - entry.fetchedAt > ttlMillis - leadMillis;
+    }
+
+    /**
+     * Các ô được người dùng đọc gần đây (trong khoảng sinceMillis)
+     */
+    public synchronized List<GridCell> recentlyRequestedCells(long sinceMillis) {
+        long threshold = System.currentTimeMillis() - sinceMillis;
+        List<GridCell> cells = new ArrayList<>();
+        for (Map.Entry<GridCell, Entry> e : entries.entrySet()) {
+            if (e.getValue().lastAccess >= threshold) {
+                cells.add(e.getKey());
+            }
+        }
+        return cells;
+    }
+
+    public synchronized AqiCacheStatsResponse getStats() {
+        return AqiCacheStatsResponse.builder()
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .evictions(evictions.sum())
+                .expirations(expirations.sum())
+                .size(entries.size())
+                .maxEntries(maxEntries)
+                .ttlSeconds(ttlMillis / 1000)
+                .cellSizeDegrees(cellSize)
+                .build();
+    }
+
+    private static final class Entry {
+        private final AqiResponse response;
+        private final long fetchedAt;
+        private long lastAccess;
+
+        private Entry(AqiResponse response, long fetchedAt, long lastAccess) {
+            this.response = response;
+            this.fetchedAt = fetchedAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
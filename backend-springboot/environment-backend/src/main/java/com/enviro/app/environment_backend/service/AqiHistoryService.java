@@ -0,0 +1,284 @@
+package com.enviro.app.environment_backend.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.enviro.app.environment_backend.dto.AqiDataPoint;
+import com.enviro.app.environment_backend.dto.AqiHistoryResponse;
+
+/**
+ * Kho lịch sử AQI (time-series) theo ô lưới.
+ * - Ghi: mỗi lần một ô được làm mới, quan sát được đưa vào buffer và ghi theo lô (append-only)
+ * - Downsample: job định kỳ gộp dữ liệu thô thành bản ghi theo giờ, rồi theo ngày; dữ liệu cũ được xóa theo retention
+ * - Đọc: /api/aqi/history đọc theo khoảng thời gian, không gọi upstream
+ */
+@Service
+public class AqiHistoryService {
+
+    public static final String RAW = "RAW";
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    // Ngày được tính theo giờ Việt Nam (Asia/Ho_Chi_Minh, UTC+7)
+    private static final long LOCAL_OFFSET_SECONDS = 7 * 3600;
+
+    private static final String INSERT_OBSERVATION_SQL =
+            "INSERT INTO aqi_observations (cell_id, observed_at, aqi, co, no, no2, o3, so2, pm2_5, pm10, nh3) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private static final String HOURLY_ROLLUP_SQL =
+            "INSERT INTO aqi_rollups (cell_id, resolution, bucket_start, aqi_avg, aqi_max, pm2_5, pm10, o3, no2, so2, co, sample_count) " +
+            "SELECT cell_id, 'HOUR', (observed_at / 3600) * 3600, AVG(aqi), MAX(aqi), " +
+            "AVG(pm2_5), AVG(pm10), AVG(o3), AVG(no2), AVG(so2), AVG(co), COUNT(*) " +
+            "FROM aqi_observations WHERE observed_at >= ? AND observed_at < ? " +
+            "GROUP BY cell_id, (observed_at / 3600) * 3600 " +
+            "ON CONFLICT (cell_id, resolution, bucket_start) DO UPDATE SET " +
+            "aqi_avg = EXCLUDED.aqi_avg, aqi_max = EXCLUDED.aqi_max, pm2_5 = EXCLUDED.pm2_5, pm10 = EXCLUDED.pm10, " +
+            "o3 = EXCLUDED.o3, no2 = EXCLUDED.no2, so2 = EXCLUDED.so2, co = EXCLUDED.co, sample_count = EXCLUDED.sample_count";
+
+    // Gộp theo ngày từ dữ liệu theo giờ, trung bình có trọng số theo sample_count
+    private static final String DAILY_ROLLUP_SQL =
+            "INSERT INTO aqi_rollups (cell_id, resolution, bucket_start, aqi_avg, aqi_max, pm2_5, pm10, o3, no2, so2, co, sample_count) " +
+            "SELECT cell_id, 'DAY', ((bucket_start + " + LOCAL_OFFSET_SECONDS + ") / 86400) * 86400 - " + LOCAL_OFFSET_SECONDS + ", " +
+            "SUM(aqi_avg * sample_count) / SUM(sample_count), MAX(aqi_max), " +
+            "SUM(pm2_5 * sample_count) / SUM(sample_count), SUM(pm10 * sample_count) / SUM(sample_count), " +
+            "SUM(o3 * sample_count) / SUM(sample_count), SUM(no2 * sample_count) / SUM(sample_count), " +
+            "SUM(so2 * sample_count) / SUM(sample_count), SUM(co * sample_count) / SUM(sample_count), SUM(sample_count) " +
+            "FROM aqi_rollups WHERE resolution = 'HOUR' AND bucket_start >= ? AND bucket_start < ? " +
+            "GROUP BY cell_id, ((bucket_start + " + LOCAL_OFFSET_SECONDS + ") / 86400) * 86400 - " + LOCAL_OFFSET_SECONDS + " " +
+            "ON CONFLICT (cell_id, resolution, bucket_start) DO UPDATE SET " +
+            "aqi_avg = EXCLUDED.aqi_avg, aqi_max = EXCLUDED.aqi_max, pm2_5 = EXCLUDED.pm2_5, pm10 = EXCLUDED.pm10, " +
+            "o3 = EXCLUDED.o3, no2 = EXCLUDED.no2, so2 = EXCLUDED.so2, co = EXCLUDED.co, sample_count = EXCLUDED.sample_count";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AqiGridCache aqiCache;
+    private final AqiSubIndexCalculator subIndexCalculator;
+
+    // Buffer các quan sát chờ ghi xuống DB
+    private final ConcurrentLinkedQueue<Observation> pending = new ConcurrentLinkedQueue<>();
+
+    @Value("${aqi.history.raw-retention-days:7}")
+    private long rawRetentionDays;
+
+    @Value("${aqi.history.hourly-retention-days:90}")
+    private long hourlyRetentionDays;
+
+    @Value("${aqi.history.max-points:5000}")
+    private int maxPoints;
+
+    public AqiHistoryService(JdbcTemplate jdbcTemplate, AqiGridCache aqiCache,
+                             AqiSubIndexCalculator subIndexCalculator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.aqiCache = aqiCache;
+        this.subIndexCalculator = subIndexCalculator;
+    }
+
+    /**
+     * Ghi nhận quan sát mỗi khi một ô lưới được làm mới (chỉ đưa vào buffer, không chặn luồng gọi)
+     */
+    @EventListener
+    public void onCellRefreshed(AqiCellRefreshedEvent event) {
+        AqiDataPoint dataPoint = event.getDataPoint();
+        if (dataPoint.getMain() == null) {
+            return;
+        }
+        Map<String, Double> c = dataPoint.getComponents();
+        pending.add(new Observation(
+                event.getCell().getId(),
+                dataPoint.getDt(),
+                (short) dataPoint.getMain().getAqi(),
+                component(c, "co"), component(c, "no"), component(c, "no2"), component(c, "o3"),
+                component(c, "so2"), component(c, "pm2_5"), component(c, "pm10"), component(c, "nh3")));
+    }
+
+    /**
+     * Ghi các quan sát trong buffer xuống DB theo lô
+     */
+    @Scheduled(fixedDelayString = "${aqi.history.flush-interval-ms:5000}")
+    public void flushPending() {
+        List<Object[]> batch = new ArrayList<>();
+        Observation o;
+        while ((o = pending.poll()) != null) {
+            batch.add(new Object[] { o.cellId, o.observedAt, o.aqi,
+                    o.co, o.no, o.no2, o.o3, o.so2, o.pm25, o.pm10, o.nh3 });
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_OBSERVATION_SQL, batch);
+        }
+    }
+
+    /**
+     * Downsample: thô -> giờ -> ngày, sau đó xóa dữ liệu quá hạn lưu trữ
+     */
+    @Scheduled(cron = "${aqi.history.downsample-cron:0 5 * * * *}")
+    public void downsample() {
+        long now = Instant.now().getEpochSecond();
+
+        // Gộp lại từ giờ gần nhất đã gộp (có thể chưa đủ dữ liệu) tới hết giờ trước
+        long currentHour = (now / 3600) * 3600;
+        Long lastHour = jdbcTemplate.queryForObject(
+                "SELECT MAX(bucket_start) FROM aqi_rollups WHERE resolution = 'HOUR'", Long.class);
+        jdbcTemplate.update(HOURLY_ROLLUP_SQL, lastHour != null ? lastHour : 0L, currentHour);
+
+        long currentDay = ((now + LOCAL_OFFSET_SECONDS) / 86400) * 86400 - LOCAL_OFFSET_SECONDS;
+        Long lastDay = jdbcTemplate.queryForObject(
+                "SELECT MAX(bucket_start) FROM aqi_rollups WHERE resolution = 'DAY'", Long.class);
+        jdbcTemplate.update(DAILY_ROLLUP_SQL, lastDay != null ? lastDay : 0L, currentDay);
+
+        jdbcTemplate.update("DELETE FROM aqi_observations WHERE observed_at < ?",
+                Math.min(currentHour, now - rawRetentionDays * 86400));
+        jdbcTemplate.update("DELETE FROM aqi_rollups WHERE resolution = 'HOUR' AND bucket_start < ?",
+                Math.min(currentDay, now - hourlyRetentionDays * 86400));
+    }
+
+    /**
+     * Đọc lịch sử AQI của ô lưới chứa (lat, lon) trong khoảng [from, to] (epoch giây).
+     * resolution = raw | hour | day | auto (tự chọn theo độ dài khoảng thời gian)
+     */
+    public AqiHistoryResponse getHistory(double lat, double lon, Long from, Long to, String resolution) {
+        long end = to != null ? to : Instant.now().getEpochSecond();
+        long start = from != null ? from : end - 86400;
+        if (start > end) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Thời gian bắt đầu phải trước thời gian kết thúc.");
+        }
+
+        String level = resolveResolution(resolution, end - start);
+        long cellId = aqiCache.cellOf(lat, lon).getId();
+
+        Columns columns = new Columns();
+        if (RAW.equals(level)) {
+            jdbcTemplate.query(
+                    "SELECT observed_at, aqi, aqi, pm2_5, pm10, o3, no2, so2, co FROM aqi_observations " +
+                    "WHERE cell_id = ? AND observed_at BETWEEN ? AND ? ORDER BY observed_at LIMIT ?",
+                    columns::add, cellId, start, end, maxPoints);
+        } else {
+            jdbcTemplate.query(
+                    "SELECT bucket_start, aqi_avg, aqi_max, pm2_5, pm10, o3, no2, so2, co FROM aqi_rollups " +
+                    "WHERE cell_id = ? AND resolution = ? AND bucket_start BETWEEN ? AND ? ORDER BY bucket_start LIMIT ?",
+                    columns::add, cellId, level, start, end, maxPoints);
+        }
+
+        return columns.toResponse(lat, lon, level, subIndexCalculator);
+    }
+
+    private String resolveResolution(String resolution, long rangeSeconds) {
+        String value = resolution == null ? "auto" : resolution.trim().toLowerCase();
+        return switch (value) {
+            case "raw" -> RAW;
+            case "hour" -> HOUR;
+            case "day" -> DAY;
+            case "auto" -> rangeSeconds <= 2 * 86400 ? RAW : rangeSeconds <= 60 * 86400 ? HOUR : DAY;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "resolution không hợp lệ (raw, hour, day, auto): " + resolution);
+        };
+    }
+
+    private static float component(Map<String, Double> components, String key) {
+        if (components == null) {
+            return 0f;
+        }
+        Double value = components.get(key);
+        return value != null ? value.floatValue() : 0f;
+    }
+
+    private static final class Observation {
+        private final long cellId;
+        private final long observedAt;
+        private final short aqi;
+        private final float co, no, no2, o3, so2, pm25, pm10, nh3;
+
+        private Observation(long cellId, long observedAt, short aqi,
+                            float co, float no, float no2, float o3,
+                            float so2, float pm25, float pm10, float nh3) {
+            this.cellId = cellId;
+            this.observedAt = observedAt;
+            this.aqi = aqi;
+            this.co = co;
+            this.no = no;
+            this.no2 = no2;
+            this.o3 = o3;
+            this.so2 = so2;
+            this.pm25 = pm25;
+            this.pm10 = pm10;
+            this.nh3 = nh3;
+        }
+    }
+
+    /**
+     * Bộ đệm dạng cột (mảng nguyên thủy) tự mở rộng khi đọc kết quả truy vấn
+     */
+    private static final class Columns {
+        private int size;
+        private long[] times = new long[64];
+        private float[] aqi = new float[64];
+        private int[] aqiMax = new int[64];
+        private float[] pm25 = new float[64];
+        private float[] pm10 = new float[64];
+        private float[] o3 = new float[64];
+        private float[] no2 = new float[64];
+        private float[] so2 = new float[64];
+        private float[] co = new float[64];
+
+        private void add(ResultSet rs) throws SQLException {
+            if (size == times.length) {
+                int capacity = size * 2;
+                times = Arrays.copyOf(times, capacity);
+                aqi = Arrays.copyOf(aqi, capacity);
+                aqiMax = Arrays.copyOf(aqiMax, capacity);
+                pm25 = Arrays.copyOf(pm25, capacity);
+                pm10 = Arrays.copyOf(pm10, capacity);
+                o3 = Arrays.copyOf(o3, capacity);
+                no2 = Arrays.copyOf(no2, capacity);
+                so2 = Arrays.copyOf(so2, capacity);
+                co = Arrays.copyOf(co, capacity);
+            }
+            times[size] = rs.getLong(1);
+            aqi[size] = rs.getFloat(2);
+            aqiMax[size] = rs.getInt(3);
+            pm25[size] = rs.getFloat(4);
+            pm10[size] = rs.getFloat(5);
+            o3[size] = rs.getFloat(6);
+            no2[size] = rs.getFloat(7);
+            so2[size] = rs.getFloat(8);
+            co[size] = rs.getFloat(9);
+            size++;
+        }
+
+        private AqiHistoryResponse toResponse(double lat, double lon, String resolution,
+                                              AqiSubIndexCalculator calculator) {
+            // AQI US EPA tính hàng loạt trên các cột nồng độ (thứ tự PM25, PM10, O3, NO2, SO2, CO)
+            float[] usAqi = new float[size];
+            calculator.usAqi(new float[][] { pm25, pm10, o3, no2, so2, co }, size, usAqi);
+
+            return AqiHistoryResponse.builder()
+                    .latitude(lat)
+                    .longitude(lon)
+                    .resolution(resolution)
+                    .times(Arrays.copyOf(times, size))
+                    .aqi(Arrays.copyOf(aqi, size))
+                    .aqiMax(Arrays.copyOf(aqiMax, size))
+                    .usAqi(usAqi)
+                    .pm25(Arrays.copyOf(pm25, size))
+                    .pm10(Arrays.copyOf(pm10, size))
+                    .o3(Arrays.copyOf(o3, size))
+                    .no2(Arrays.copyOf(no2, size))
+                    .so2(Arrays.copyOf(so2, size))
+                    .co(Arrays.copyOf(co, size))
+                    .build();
+        }
+    }
+}
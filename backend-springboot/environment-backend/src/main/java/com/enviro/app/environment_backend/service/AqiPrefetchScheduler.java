@@ -0,0 +1,148 @@
+package com.enviro.app.environment_backend.service;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.enviro.app.environment_backend.repository.GeocodedAddressRepository;
+import com.enviro.app.environment_backend.repository.SavedLocationRepository;
+
+/**
+ * Job nền làm mới AQI cho các ô lưới "nóng" trước khi cache hết hạn,
+ * để /api/aqi và /api/locations/aqi chủ yếu chỉ đọc cache.
+ * Job cũng tải dự báo AQI cho các ô nóng (xem AqiForecastService).
+ * Ô nóng = vị trí đã lưu + vị trí mặc định đã geocode + các ô được đọc gần đây + các ô đang được stream.
+ */
+@Component
+public class AqiPrefetchScheduler {
+
+    private final AqiService aqiService;
+    private final AqiGridCache aqiCache;
+    private final SavedLocationRepository savedLocationRepository;
+    private final GeocodedAddressRepository geocodedAddressRepository;
+    private final AqiStreamService aqiStreamService;
+    private final AqiForecastService aqiForecastService;
+
+    @Value("${aqi.prefetch.enabled:true}")
+    private boolean enabled;
+
+    // Làm mới nếu bản ghi sẽ hết hạn trong khoảng thời gian này
+    @Value("${aqi.prefetch.lead-seconds:120}")
+    private long leadSeconds;
+
+    // Ô được đọc trong khoảng này được xem là nóng
+    @Value("${aqi.prefetch.recent-window-minutes:60}")
+    private long recentWindowMinutes;
+
+    // Giới hạn tốc độ gọi upstream của job
+    @Value("${aqi.prefetch.max-requests-per-second:5}")
+    private double maxRequestsPerSecond;
+
+    @Value("${aqi.prefetch.max-cells-per-run:500}")
+    private int maxCellsPerRun;
+
+    public AqiPrefetchScheduler(AqiService aqiService,
+                                AqiGridCache aqiCache,
+                                SavedLocationRepository savedLocationRepository,
+                                GeocodedAddressRepository geocodedAddressRepository,
+                                AqiStreamService aqiStreamService,
+                                AqiForecastService aqiForecastService) {
+        this.aqiService = aqiService;
+        this.aqiCache = aqiCache;
+        this.savedLocationRepository = savedLocationRepository;
+        this.geocodedAddressRepository = geocodedAddressRepository;
+        this.aqiStreamService = aqiStreamService;
+        this.aqiForecastService = aqiForecastService;
+    }
+
+    @Scheduled(fixedDelayString = "${aqi.prefetch.interval-ms:60000}", initialDelayString = "${aqi.prefetch.initial-delay-ms:30000}")
+    public void prefetchHotCells() {
+        if (!enabled) {
+            return;
+        }
+
+        Set<GridCell> hotCells = collectHotCells();
+        long leadMillis = leadSeconds * 1000;
+        long pauseMillis = maxRequestsPerSecond > 0 ? (long) (1000 / maxRequestsPerSecond) : 0;
+
+        int refreshed = 0;
+        for (GridCell cell : hotCells) {
+            if (refreshed >= maxCellsPerRun) {
+                break;
+            }
+            if (!aqiCache.needsRefresh(cell, leadMillis)) {
+                continue;
+            }
+            aqiService.refreshCell(cell);
+            refreshed++;
+            if (!sleep(pauseMillis)) {
+                break;
+            }
+        }
+        if (refreshed > 0) {
+            System.out.println("AQI prefetch: đã làm mới " + refreshed + "/" + hotCells.size() + " ô lưới.");
+        }
+    }
+
+    /**
+     * Tải dự báo AQI cho các ô nóng (và các ô có dự báo được đọc gần đây), mỗi ô một lần mỗi chu kỳ làm mới
+     */
+    @Scheduled(fixedDelayString = "${aqi.forecast.check-interval-ms:300000}", initialDelayString = "${aqi.prefetch.initial-delay-ms:30000}")
+    public void prefetchForecasts() {
+        if (!enabled) {
+            return;
+        }
+
+        Set<GridCell> hotCells = collectHotCells();
+        hotCells.addAll(aqiForecastService.recentlyRequestedCells(recentWindowMinutes * 60_000));
+        aqiForecastService.evictExpired(hotCells);
+        long pauseMillis = maxRequestsPerSecond > 0 ? (long) (1000 / maxRequestsPerSecond) : 0;
+
+        int refreshed = 0;
+        for (GridCell cell : hotCells) {
+            if (refreshed >= maxCellsPerRun) {
+                break;
+            }
+            if (!aqiForecastService.needsRefresh(cell)) {
+                continue;
+            }
+            aqiForecastService.refresh(cell);
+            refreshed++;
+            if (!sleep(pauseMillis)) {
+                break;
+            }
+        }
+        if (refreshed > 0) {
+            System.out.println("AQI forecast: đã tải dự báo cho " + refreshed + "/" + hotCells.size() + " ô lưới.");
+        }
+    }
+
+    /**
+     * Gom các ô nóng, ưu tiên ô đang được stream và ô được đọc gần đây trước
+     */
+    Set<GridCell> collectHotCells() {
+        Set<GridCell> cells = new LinkedHashSet<>(aqiStreamService.subscribedCells());
+        cells.addAll(aqiCache.recentlyRequestedCells(recentWindowMinutes * 60_000));
+        savedLocationRepository.findAllCoordinates()
+                .forEach(c -> cells.add(aqiCache.cellOf(c.getLatitude(), c.getLongitude())));
+        geocodedAddressRepository.findAllCoordinates()
+                .forEach(c -> cells.add(aqiCache.cellOf(c.getLatitude(), c.getLongitude())));
+        return cells;
+    }
+
+    private boolean sleep(long millis) {
+        if (millis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.enviro.app.environment_backend.service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import org.springframework.stereotype.Component;
+
+import com.enviro.app.environment_backend.dto.AqiDataPoint;
+import com.enviro.app.environment_backend.dto.AqiResponse;
+
+/**
+ * Chuyển dữ liệu thô của OpenWeatherMap thành AqiResponse cho client.
+ * Trạng thái/lời khuyên là bảng tra tính sẵn theo mức AQI (1-5), formatter thời gian dùng chung;
+ * AQI theo thang US EPA và chất ô nhiễm chính lấy từ AqiSubIndexCalculator.
+ */
+@Component
+public class AqiPresenter {
+
+    public static final String NOT_AVAILABLE = "N/A";
+
+    // Chỉ số = mức AQI của OpenWeatherMap (1-5), phần tử 0 dùng cho giá trị không hợp lệ
+    private static final String[] STATUS = {
+            "Unknown", "Good", "Fair", "Moderate", "Poor", "Very Poor"
+    };
+
+    private static final String[] HEALTH_ADVISORY = {
+            "Không có dữ liệu.",
+            "Chất lượng không khí tốt.",
+            "Chấp nhận được.",
+            "Nhóm nhạy cảm nên hạn chế ra ngoài.",
+            "Không khí kém, hạn chế ra ngoài.",
+            "Nguy hại, tránh ra ngoài."
+    };
+
+    private static final DateTimeFormatter OBSERVATION_TIME_FORMAT = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.of("Asia/Ho_Chi_Minh"));
+
+    private final AqiSubIndexCalculator subIndexCalculator;
+
+    public AqiPresenter(AqiSubIndexCalculator subIndexCalculator) {
+        this.subIndexCalculator = subIndexCalculator;
+    }
+
+    /**
+     * Dựng AqiResponse cho một ô lưới từ điểm dữ liệu của upstream
+     */
+    public AqiResponse present(AqiDataPoint dataPoint, double lat, double lon, String city) {
+        int aqi = dataPoint.getMain().getAqi();
+        double[] subIndices = new double[AqiSubIndexCalculator.POLLUTANT_COUNT];
+        int dominant = subIndexCalculator.subIndices(dataPoint.getComponents(), subIndices);
+        return AqiResponse.builder()
+                .aqiValue(aqi)
+                .usAqi(dominant >= 0 ? (int) Math.round(subIndices[dominant]) : -1)
+                .status(statusOf(aqi))
+                .dominantPollutant(dominant >= 0 ? AqiSubIndexCalculator.label(dominant) : NOT_AVAILABLE)
+                .latitude(lat)
+                .longitude(lon)
+                .city(city)
+                .timeObservation(formatObservationTime(dataPoint.getDt()))
+                .healthAdvisory(healthAdvisoryOf(aqi))
+                .build();
+    }
+
+    public String statusOf(int aqi) {
+        return STATUS[levelIndex(aqi)];
+    }
+
+    public String healthAdvisoryOf(int aqi) {
+        return HEALTH_ADVISORY[levelIndex(aqi)];
+    }
+
+    public String formatObservationTime(long unixSeconds) {
+        return OBSERVATION_TIME_FORMAT.format(Instant.ofEpochSecond(unixSeconds));
+    }
+
+    private static int levelIndex(int aqi) {
+        return aqi >= 1 && aqi < STATUS.length ? aqi : 0;
+    }
+}
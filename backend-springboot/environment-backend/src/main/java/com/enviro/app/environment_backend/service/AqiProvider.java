@@ -0,0 +1,34 @@
+package com.enviro.app.environment_backend.service;
+
+import java.util.List;
+
+import com.enviro.app.environment_backend.dto.AqiDataPoint;
+import com.enviro.app.environment_backend.dto.GeocodingResponse;
+
+/**
+ * Nguồn dữ liệu AQI/Geocoding phía sau AqiService.
+ * Triển khai chỉ lo phần I/O với nguồn dữ liệu; cache, single-flight và circuit breaker nằm ở AqiService.
+ * Lỗi mạng được ném ra (RestClientException) để circuit breaker ghi nhận.
+ */
+public interface AqiProvider {
+
+    /**
+     * Điểm dữ liệu AQI hiện tại tại tọa độ, null nếu nguồn không có dữ liệu
+     */
+    AqiDataPoint fetchCurrent(double lat, double lon);
+
+    /**
+     * Dự báo AQI theo giờ tại tọa độ, null/rỗng nếu nguồn không có dữ liệu
+     */
+    List<AqiDataPoint> fetchForecast(double lat, double lon);
+
+    /**
+     * Địa chỉ -> tọa độ, null nếu không tìm thấy
+     */
+    GeocodingResponse geocode(String address);
+
+    /**
+     * Tọa độ -> tên địa danh, null nếu không tìm thấy
+     */
+    String reverseGeocode(double lat, double lon);
+}
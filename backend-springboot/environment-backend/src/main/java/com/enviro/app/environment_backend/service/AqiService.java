@@ -1,71 +1,250 @@
 package com.enviro.app.environment_backend.service;
 
+import com.enviro.app.environment_backend.dto.AqiCacheStatsResponse;
 import com.enviro.app.environment_backend.dto.AqiDataPoint;
+import com.enviro.app.environment_backend.dto.AqiRequest;
 import com.enviro.app.environment_backend.dto.AqiResponse;
 import com.enviro.app.environment_backend.dto.GeocodingResponse;
-import com.enviro.app.environment_backend.dto.OpenWeatherMapResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.net.URI;
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class AqiService {
 
-    @Value("${aqi.api.key}")
-    private String apiKey;
+    // Số tọa độ tối đa cho một lần gọi /api/aqi/batch
+    @Value("${aqi.batch.max-size:100}")
+    private int batchMaxSize;
 
-    @Value("${aqi.api.base-url}")
-    private String baseUrl;
+    @Value("${aqi.fanout.timeout-ms:3000}")
+    private long fanoutTimeoutMs;
 
-    @Value("${aqi.api.geocoding-url}")
-    private String geocodingUrl;
+    private final AqiProvider aqiProvider;
+    private final AqiGridCache aqiCache;
+    private final OfflineReverseGeocoder offlineReverseGeocoder;
+    private final CircuitBreaker circuitBreaker;
+    private final ExecutorService aqiExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AqiPresenter aqiPresenter;
 
-    private final RestTemplate restTemplate;
+    // Gộp các request upstream trùng nhau khi nhiều client cùng hỏi một ô lưới/địa chỉ
+    private final SingleFlight<GridCell, AqiResponse> aqiFlights = new SingleFlight<>();
+    private final SingleFlight<String, GeocodingResponse> geocodingFlights = new SingleFlight<>();
+    private final SingleFlight<GridCell, String> reverseGeocodingFlights = new SingleFlight<>();
 
-    public AqiService(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    // Tên địa danh đã reverse geocode theo ô lưới (LRU). Tên của một ô gần như không đổi nên không cần TTL;
+    // nhờ vậy mỗi ô chỉ gọi reverse geocoding từ xa một lần, không phải mỗi lần AQI của ô hết hạn.
+    private final Map<GridCell, String> cityNames;
+
+    public AqiService(AqiProvider aqiProvider, AqiGridCache aqiCache,
+                      OfflineReverseGeocoder offlineReverseGeocoder,
+                      @Qualifier("aqiCircuitBreaker") CircuitBreaker circuitBreaker,
+                      @Qualifier("aqiExecutor") ExecutorService aqiExecutor,
+                      ApplicationEventPublisher eventPublisher,
+                      AqiPresenter aqiPresenter,
+                      @Value("${aqi.reverse-geocoding.cache-max-entries:20000}") int cityNameCacheMaxEntries) {
+        this.aqiProvider = aqiProvider;
+        this.aqiCache = aqiCache;
+        this.offlineReverseGeocoder = offlineReverseGeocoder;
+        this.circuitBreaker = circuitBreaker;
+        this.aqiExecutor = aqiExecutor;
+        this.eventPublisher = eventPublisher;
+        this.aqiPresenter = aqiPresenter;
+        this.cityNames = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<GridCell, String> eldest) {
+                return size() > cityNameCacheMaxEntries;
+            }
+        });
     }
 
     /**
-     * Lấy thông tin AQI theo tọa độ GPS
+     * Lấy thông tin AQI theo tọa độ GPS.
+     * Kết quả được cache theo ô lưới nên các request gần nhau chỉ tốn một lần gọi upstream.
+     * Khi upstream lỗi/chậm (circuit breaker mở), trả về dữ liệu cũ gần nhất của ô với cờ stale.
      */
     public AqiResponse getCurrentAqiByGps(double lat, double lon) {
-        String url = String.format("%s?lat=%s&lon=%s&appid=%s", baseUrl, lat, lon, apiKey);
+        AqiResponse cellResponse = getCellAqi(aqiCache.cellOf(lat, lon));
+        return cellResponse != null ? forCaller(cellResponse, lat, lon) : null;
+    }
+
+    /**
+     * Lấy AQI cho nhiều tọa độ cùng lúc, kết quả trả về theo đúng thứ tự đầu vào.
+     * Các tọa độ được gộp theo ô lưới: ô có sẵn trong cache trả ngay, các ô còn thiếu
+     * được gọi upstream song song. Tọa độ không lấy được dữ liệu trả về giá trị "N/A".
+     */
+    public List<AqiResponse> getCurrentAqiBatch(List<AqiRequest> locations) {
+        if (locations.size() > batchMaxSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Tối đa " + batchMaxSize + " tọa độ cho mỗi yêu cầu.");
+        }
+
+        // 1. Gộp tọa độ theo ô lưới
+        GridCell[] cellOfLocation = new GridCell[locations.size()];
+        Map<GridCell, AqiResponse> resolved = new HashMap<>();
+        Map<GridCell, CompletableFuture<AqiResponse>> pending = new HashMap<>();
+        for (int i = 0; i < cellOfLocation.length; i++) {
+            AqiRequest location = locations.get(i);
+            GridCell cell = aqiCache.cellOf(location.getLatitude(), location.getLongitude());
+            cellOfLocation[i] = cell;
+            if (resolved.containsKey(cell) || pending.containsKey(cell)) {
+                continue;
+            }
+
+            // 2. Ô có trong cache trả ngay, ô thiếu gửi đi song song
+            AqiResponse fresh = aqiCache.get(cell);
+            if (fresh != null) {
+                resolved.put(cell, fresh);
+            } else {
+                pending.put(cell, BoundedAsync
+                        .supply(() -> getCellAqi(cell), aqiExecutor)
+                        .completeOnTimeout(null, fanoutTimeoutMs, TimeUnit.MILLISECONDS)
+                        .exceptionally(ex -> null));
+            }
+        }
+        pending.forEach((cell, future) -> resolved.put(cell, future.join()));
+
+        // 3. Ghép kết quả theo thứ tự đầu vào
+        List<AqiResponse> results = new ArrayList<>(cellOfLocation.length);
+        for (int i = 0; i < cellOfLocation.length; i++) {
+            AqiRequest location = locations.get(i);
+            AqiResponse cellResponse = resolved.get(cellOfLocation[i]);
+            results.add(cellResponse != null
+                    ? forCaller(cellResponse, location.getLatitude(), location.getLongitude())
+                    : unavailable(location.getLatitude(), location.getLongitude()));
+        }
+        return results;
+    }
+
+    /**
+     * Làm mới AQI của một ô lưới trước khi hết TTL (dùng cho prefetch nền)
+     */
+    public boolean refreshCell(GridCell cell) {
+        return aqiFlights.execute(cell, () -> loadCell(cell)) != null;
+    }
+
+    public AqiCacheStatsResponse getCacheStats() {
+        return aqiCache.getStats().toBuilder()
+                .circuitBreakerState(circuitBreaker.getState().name())
+                .build();
+    }
+
+    /**
+     * AQI của một ô lưới (tọa độ tâm ô): cache còn hạn -> dùng ngay; upstream đang lỗi -> dữ liệu cũ
+     * (cờ stale); còn lại gọi upstream qua single-flight.
+     */
+    private AqiResponse getCellAqi(GridCell cell) {
+        AqiResponse fresh = aqiCache.get(cell);
+        if (fresh != null) {
+            return fresh;
+        }
+
+        AqiResponse stale = aqiCache.getStale(cell);
+        if (stale != null && circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+            // Upstream đang lỗi: trả dữ liệu cũ ngay, làm mới nền khi breaker cho phép thử lại
+            if (circuitBreaker.isCallPermitted()) {
+                refreshInBackground(cell);
+            }
+            return stale.toBuilder().stale(true).build();
+        }
+
+        AqiResponse loaded = aqiFlights.execute(cell, () -> loadCell(cell));
+        if (loaded != null) {
+            return loaded;
+        }
+        return stale != null ? stale.toBuilder().stale(true).build() : null;
+    }
+
+    /**
+     * Trả lại đúng tọa độ người dùng đã hỏi, dữ liệu còn lại dùng chung cho cả ô
+     */
+    private AqiResponse forCaller(AqiResponse cellResponse, double lat, double lon) {
+        return cellResponse.toBuilder()
+                .latitude(lat)
+                .longitude(lon)
+                .build();
+    }
+
+    /**
+     * Kết quả "N/A" cho tọa độ lỗi hoặc quá hạn
+     */
+    private AqiResponse unavailable(double lat, double lon) {
+        return AqiResponse.builder()
+                .aqiValue(-1)
+                .usAqi(-1)
+                .status(AqiPresenter.NOT_AVAILABLE)
+                .dominantPollutant(AqiPresenter.NOT_AVAILABLE)
+                .latitude(lat)
+                .longitude(lon)
+                .healthAdvisory("Không thể lấy dữ liệu.")
+                .timeObservation(AqiPresenter.NOT_AVAILABLE)
+                .build();
+    }
+
+    private void refreshInBackground(GridCell cell) {
         try {
-            OpenWeatherMapResponse response = restTemplate.getForObject(url, OpenWeatherMapResponse.class);
+            aqiExecutor.execute(() -> aqiFlights.execute(cell, () -> loadCell(cell)));
+        } catch (RejectedExecutionException e) {
+            // Pool đầy hoặc đang shutdown - bỏ qua, lần gọi sau sẽ thử lại
+        }
+    }
 
-            if (response != null && response.getList() != null && !response.getList().isEmpty()) {
-                AqiDataPoint dataPoint = response.getList().get(0);
-                
-                int aqi = dataPoint.getMain().getAqi();
-                Map<String, Double> components = dataPoint.getComponents();
-                long dt = dataPoint.getDt();
-
-                String city = getCityNameFromGps(lat, lon);
-
-                return AqiResponse.builder()
-                        .aqiValue(aqi)
-                        .status(mapAqiToStatus(aqi))
-                        .dominantPollutant(findDominantPollutant(components))
-                        .latitude(lat)
-                        .longitude(lon)
-                        .city(city)
-                        .timeObservation(convertUnixTime(dt))
-                        .healthAdvisory(getHealthAdvisory(aqi))
-                        .build();
+    /**
+     * Chỉ luồng dẫn đầu của single-flight chạy hàm này: gọi upstream, ghi vào cache
+     * rồi phát sự kiện AqiCellRefreshedEvent cho các thành phần khác (lịch sử, ...)
+     */
+    private AqiResponse loadCell(GridCell cell) {
+        try {
+            AqiDataPoint dataPoint = circuitBreaker.execute(
+                    () -> aqiProvider.fetchCurrent(cell.getCenterLat(), cell.getCenterLon()));
+            if (dataPoint == null) {
+                return null;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            AqiResponse response = buildResponse(cell, dataPoint);
+            aqiCache.put(cell, response);
+            eventPublisher.publishEvent(new AqiCellRefreshedEvent(cell, response, dataPoint));
+            return response;
+        } catch (CircuitBreaker.OpenException e) {
+            return null;
+        } catch (RestClientException e) {
+            System.err.println("Air Pollution API error cho ô " + cell + ": " + e.getMessage());
+            return null;
         }
-        return null;
+    }
+
+    /**
+     * Dự báo AQI theo giờ (khoảng 4 ngày) cho tâm ô lưới; null nếu upstream lỗi hoặc breaker đang mở
+     */
+    public List<AqiDataPoint> fetchForecast(GridCell cell) {
+        try {
+            return circuitBreaker.execute(
+                    () -> aqiProvider.fetchForecast(cell.getCenterLat(), cell.getCenterLon()));
+        } catch (CircuitBreaker.OpenException e) {
+            return null;
+        } catch (RestClientException e) {
+            System.err.println("Air Pollution Forecast API error cho ô " + cell + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private AqiResponse buildResponse(GridCell cell, AqiDataPoint dataPoint) {
+        String city = getCityNameFromGps(cell);
+        return aqiPresenter.present(dataPoint, cell.getCenterLat(), cell.getCenterLon(), city);
     }
 
     /**
@@ -101,81 +280,47 @@ public class AqiService {
 
     // Hàm phụ trợ gọi API (tránh lặp code)
     private GeocodingResponse callGeocodingApi(String address) {
-        String directGeoUrl = "http://api.openweathermap.org/geo/1.0/direct";
+        // Chuẩn hóa địa chỉ để các request giống nhau dùng chung một lời gọi
+        String key = address.trim().toLowerCase();
+        return geocodingFlights.execute(key, () -> doCallGeocodingApi(address));
+    }
+
+    private GeocodingResponse doCallGeocodingApi(String address) {
         try {
-            URI uri = UriComponentsBuilder.fromHttpUrl(directGeoUrl)
-                    .queryParam("q", address)
-                    .queryParam("limit", 1)
-                    .queryParam("appid", apiKey)
-                    .build()
-                    .toUri();
-
-            ResponseEntity<GeocodingResponse[]> responseEntity = 
-                restTemplate.getForEntity(uri, GeocodingResponse[].class);
-            
-            GeocodingResponse[] responses = responseEntity.getBody();
-
-            if (responses != null && responses.length > 0) {
-                return responses[0];
-            }
+            return circuitBreaker.execute(() -> aqiProvider.geocode(address));
         } catch (Exception e) {
             System.err.println("Geocoding API error cho địa chỉ '" + address + "': " + e.getMessage());
         }
         return null;
     }
 
-    private String getCityNameFromGps(double lat, double lon) {
-        try {
-            URI uri = UriComponentsBuilder.fromUriString(geocodingUrl)
-                .queryParam("lat", lat)
-                .queryParam("lon", lon)
-                .queryParam("limit", 1)
-                .queryParam("appid", apiKey)
-                .build()
-                .toUri();
-
-            GeocodingResponse[] responses = restTemplate.getForObject(uri, GeocodingResponse[].class);
-            if (responses != null && responses.length > 0) {
-                return responses[0].getName();
+    private String getCityNameFromGps(GridCell cell) {
+        // Ưu tiên tra cục bộ theo ranh giới hành chính, chỉ gọi API khi không tìm thấy
+        String localName = offlineReverseGeocoder.findName(cell.getCenterLat(), cell.getCenterLon());
+        if (localName != null) {
+            return localName;
+        }
+        String cached = cityNames.get(cell);
+        if (cached != null) {
+            return cached;
+        }
+        String name = reverseGeocodingFlights.execute(cell, () -> {
+            String fetched = fetchCityName(cell.getCenterLat(), cell.getCenterLon());
+            // Chỉ cache tên thật: lỗi/không có tên thì lần làm mới sau của ô thử lại
+            if (fetched != null) {
+                cityNames.put(cell, fetched);
             }
+            return fetched;
+        });
+        return name != null ? name : "Unknown Location";
+    }
+
+    private String fetchCityName(double lat, double lon) {
+        try {
+            return circuitBreaker.execute(() -> aqiProvider.reverseGeocode(lat, lon));
         } catch (Exception e) {
-            e.printStackTrace();
+            System.err.println("Reverse geocoding API error cho (" + lat + ", " + lon + "): " + e.getMessage());
+            return null;
         }
-        return "Unknown Location";
-    }
-
-    private String mapAqiToStatus(int aqi) {
-        return switch (aqi) {
-            case 1 -> "Good";
-            case 2 -> "Fair";
-            case 3 -> "Moderate";
-            case 4 -> "Poor";
-            case 5 -> "Very Poor";
-            default -> "Unknown";
-        };
-    }
-
-    private String findDominantPollutant(Map<String, Double> components) {
-        if (components == null) return "N/A";
-        if (components.containsKey("pm2_5")) return "PM2.5";
-        if (components.containsKey("pm10")) return "PM10";
-        return "N/A";
-    }
-
-    private String convertUnixTime(long unixSeconds) {
-        return Instant.ofEpochSecond(unixSeconds)
-            .atZone(ZoneId.of("Asia/Ho_Chi_Minh"))
-            .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-    }
-
-    private String getHealthAdvisory(int aqi) {
-        return switch (aqi) {
-            case 1 -> "Chất lượng không khí tốt.";
-            case 2 -> "Chấp nhận được.";
-            case 3 -> "Nhóm nhạy cảm nên hạn chế ra ngoài.";
-            case 4 -> "Không khí kém, hạn chế ra ngoài.";
-            case 5 -> "Nguy hại, tránh ra ngoài.";
-            default -> "Không có dữ liệu.";
-        };
     }
 }
\ No newline at end of file
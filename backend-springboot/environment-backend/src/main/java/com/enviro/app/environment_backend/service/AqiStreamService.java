@@ -0,0 +1,231 @@
+package com.enviro.app.environment_backend.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.enviro.app.environment_backend.dto.AqiRequest;
+import com.enviro.app.environment_backend.dto.AqiResponse;
+
+/**
+ * Đẩy AQI trực tiếp cho client qua Server-Sent Events (/api/aqi/stream).
+ * Client đăng ký một tập tọa độ; mỗi khi ô lưới tương ứng được làm mới (AqiCellRefreshedEvent),
+ * AqiResponse mới được đẩy xuống thay vì client phải poll /api/aqi.
+ * SseEmitter chạy trên async request của Servlet nên kết nối đang chờ không giữ thread nào;
+ * việc ghi chạy trên pool riêng aqiStreamExecutor, không dùng chung pool fan-out upstream.
+ */
+@Service
+public class AqiStreamService {
+
+    private static final String AQI_EVENT = "aqi";
+
+    private final AqiService aqiService;
+    private final AqiGridCache aqiCache;
+    private final ExecutorService streamExecutor;
+
+    // Ô lưới -> các kết nối đang theo dõi ô đó
+    private final Map<GridCell, Set<Subscription>> subscriptionsByCell = new ConcurrentHashMap<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    // Số chỗ đã giữ (kể cả kết nối đang đăng ký dở), để giới hạn max-subscribers đúng khi đăng ký đồng thời
+    private final AtomicInteger subscriberSlots = new AtomicInteger();
+
+    @Value("${aqi.stream.max-locations:20}")
+    private int maxLocations;
+
+    @Value("${aqi.stream.max-subscribers:50000}")
+    private int maxSubscribers;
+
+    // Số kết nối được ghi trong một tác vụ trên aqiStreamExecutor (heartbeat, đẩy cập nhật)
+    @Value("${aqi.stream.dispatch-chunk-size:200}")
+    private int dispatchChunkSize;
+
+    // Client (EventSource) tự kết nối lại khi hết hạn
+    @Value("${aqi.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    public AqiStreamService(AqiService aqiService,
+                            AqiGridCache aqiCache,
+                            @Qualifier("aqiStreamExecutor") ExecutorService streamExecutor) {
+        this.aqiService = aqiService;
+        this.aqiCache = aqiCache;
+        this.streamExecutor = streamExecutor;
+    }
+
+    /**
+     * Mở kết nối SSE cho danh sách tọa độ, gửi ngay ảnh chụp AQI hiện tại rồi đẩy cập nhật về sau
+     */
+    public SseEmitter subscribe(List<AqiRequest> locations) {
+        if (locations.isEmpty() || locations.size() > maxLocations) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Số tọa độ theo dõi phải từ 1 đến " + maxLocations + ".");
+        }
+        if (subscriberSlots.incrementAndGet() > maxSubscribers) {
+            subscriberSlots.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Quá nhiều kết nối, vui lòng thử lại sau.");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscription subscription = new Subscription(emitter, locations);
+        emitter.onCompletion(() -> unregister(subscription));
+        emitter.onTimeout(() -> unregister(subscription));
+        emitter.onError(ex -> unregister(subscription));
+
+        subscriptions.add(subscription);
+        for (GridCell cell : subscription.cells) {
+            subscriptionsByCell.compute(cell, (c, watchers) -> {
+                Set<Subscription> set = watchers != null ? watchers : ConcurrentHashMap.newKeySet();
+                set.add(subscription);
+                return set;
+            });
+        }
+
+        // Ảnh chụp ban đầu: đi qua đường batch (cache trước, upstream song song cho ô thiếu), dựng ngay trên
+        // luồng đăng ký. Không chạy trên aqiExecutor vì getCurrentAqiBatch tự gửi việc lên chính pool đó rồi chờ:
+        // nhiều client đăng ký cùng lúc sẽ chiếm hết worker và các lời gọi con chỉ còn quá hạn thành null.
+        // SseEmitter giữ lại các sự kiện gửi trước khi response được khởi tạo.
+        for (AqiResponse response : aqiService.getCurrentAqiBatch(locations)) {
+            if (!send(subscription, response)) {
+                break;
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Đẩy dữ liệu mới cho các kết nối đang theo dõi ô vừa được làm mới
+     */
+    @EventListener
+    public void onCellRefreshed(AqiCellRefreshedEvent event) {
+        Set<Subscription> watchers = subscriptionsByCell.get(event.getCell());
+        if (watchers == null || watchers.isEmpty()) {
+            return;
+        }
+        AqiResponse cellResponse = event.getResponse();
+        dispatchInChunks(watchers, subscription -> {
+            for (int i = 0; i < subscription.cells.length; i++) {
+                if (subscription.cells[i].equals(event.getCell())) {
+                    AqiRequest location = subscription.locations.get(i);
+                    send(subscription, cellResponse.toBuilder()
+                            .latitude(location.getLatitude())
+                            .longitude(location.getLongitude())
+                            .build());
+                }
+            }
+        });
+    }
+
+    /**
+     * Heartbeat giữ kết nối qua proxy/load balancer và phát hiện client đã ngắt.
+     * Việc ghi được chia thành từng nhóm trên aqiStreamExecutor: scheduler dùng chung (prefetch, flush bộ đếm, ...)
+     * chỉ chia việc, không bị một client chậm giữ lại.
+     */
+    @Scheduled(fixedDelayString = "${aqi.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        dispatchInChunks(subscriptions, subscription -> {
+            synchronized (subscription) {
+                try {
+                    subscription.emitter.send(SseEmitter.event().comment("ping"));
+                } catch (IOException | IllegalStateException e) {
+                    subscription.emitter.completeWithError(e);
+                    unregister(subscription);
+                }
+            }
+        });
+    }
+
+    /**
+     * Các ô lưới đang có người theo dõi - prefetch giữ các ô này luôn mới để luồng đẩy không bị ngắt quãng
+     */
+    public Set<GridCell> subscribedCells() {
+        return subscriptionsByCell.keySet();
+    }
+
+    public int subscriberCount() {
+        return subscriberSlots.get();
+    }
+
+    private boolean send(Subscription subscription, AqiResponse response) {
+        // SseEmitter không cho phép ghi đồng thời từ nhiều thread
+        synchronized (subscription) {
+            try {
+                subscription.emitter.send(SseEmitter.event().name(AQI_EVENT).data(response));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                subscription.emitter.completeWithError(e);
+                unregister(subscription);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Ghi cho các kết nối theo từng nhóm `dispatch-chunk-size`, mỗi nhóm là một tác vụ trên aqiStreamExecutor,
+     * để một client chậm chỉ làm trễ nhóm của nó
+     */
+    private void dispatchInChunks(Collection<Subscription> targets, Consumer<Subscription> action) {
+        List<Subscription> chunk = new ArrayList<>(dispatchChunkSize);
+        for (Subscription subscription : targets) {
+            chunk.add(subscription);
+            if (chunk.size() == dispatchChunkSize) {
+                dispatch(chunk, action);
+                chunk = new ArrayList<>(dispatchChunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            dispatch(chunk, action);
+        }
+    }
+
+    private void dispatch(List<Subscription> chunk, Consumer<Subscription> action) {
+        try {
+            streamExecutor.execute(() -> chunk.forEach(action));
+        } catch (RejectedExecutionException e) {
+            // Pool đầy hoặc đang shutdown - bỏ qua nhóm này, lần đẩy/heartbeat sau sẽ thử lại
+        }
+    }
+
+    private void unregister(Subscription subscription) {
+        if (!subscriptions.remove(subscription)) {
+            return;
+        }
+        subscriberSlots.decrementAndGet();
+        for (GridCell cell : subscription.cells) {
+            subscriptionsByCell.computeIfPresent(cell, (c, watchers) -> {
+                watchers.remove(subscription);
+                return watchers.isEmpty() ? null : watchers;
+            });
+        }
+    }
+
+    private final class Subscription {
+        private final SseEmitter emitter;
+        private final List<AqiRequest> locations;
+        private final GridCell[] cells;
+
+        private Subscription(SseEmitter emitter, List<AqiRequest> locations) {
+            this.emitter = emitter;
+            this.locations = locations;
+            this.cells = new GridCell[locations.size()];
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = aqiCache.cellOf(locations.get(i).getLatitude(), locations.get(i).getLongitude());
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.enviro.app.environment_backend.service;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Tính chỉ số phụ (sub-index) theo thang US EPA AQI (0-500) cho từng chất ô nhiễm
+ * từ nồng độ μg/m3 của OpenWeatherMap, rồi lấy chỉ số lớn nhất làm AQI tổng và chất ô nhiễm chính.
+ * Bảng breakpoint lưu dạng mảng nguyên thủy, có thể chạy hàng loạt trên các cột của lịch sử.
+ */
+@Component
+public class AqiSubIndexCalculator {
+
+    // Thứ tự chất ô nhiễm dùng chung cho mọi mảng trong lớp này
+    public static final int PM25 = 0;
+    public static final int PM10 = 1;
+    public static final int O3 = 2;
+    public static final int NO2 = 3;
+    public static final int SO2 = 4;
+    public static final int CO = 5;
+    public static final int POLLUTANT_COUNT = 6;
+
+    // Khóa trong 'components' của OpenWeatherMap và tên hiển thị
+    static final String[] KEYS = { "pm2_5", "pm10", "o3", "no2", "so2", "co" };
+    static final String[] LABELS = { "PM2.5", "PM10", "O3", "NO2", "SO2", "CO" };
+
+    public static final int MAX_INDEX = 500;
+
+    // Cận trên chỉ số của mỗi hạng: Good, Moderate, USG, Unhealthy, Very Unhealthy, Hazardous
+    // (cận dưới của hạng sau = cận trên hạng trước + 1, ví dụ 51-100)
+    private static final double[] INDEX_BREAKPOINTS = { 0, 50, 100, 150, 200, 300, 500 };
+
+    // Cận trên nồng độ của mỗi hạng theo đơn vị EPA:
+    // PM2.5/PM10 μg/m3 (24h), O3 ppb (8h, phần trên dùng bảng 1h), NO2/SO2 ppb (1h), CO ppm (8h)
+    private static final double[][] CONCENTRATION_BREAKPOINTS = {
+            { 0, 9.0, 35.4, 55.4, 125.4, 225.4, 325.4 },
+            { 0, 54, 154, 254, 354, 424, 604 },
+            { 0, 54, 70, 85, 105, 200, 604 },
+            { 0, 53, 100, 360, 649, 1249, 2049 },
+            { 0, 35, 75, 185, 304, 604, 1004 },
+            { 0, 4.4, 9.4, 12.4, 15.4, 30.4, 50.4 }
+    };
+
+    // Độ chính xác của bảng EPA (1 / bước): PM2.5 và CO một chữ số thập phân, các chất còn lại số nguyên.
+    // Nồng độ được cắt về độ chính xác này trước khi tra bảng, như quy trình của EPA.
+    private static final double[] CONCENTRATION_SCALES = { 10, 1, 1, 1, 1, 10 };
+
+    // Hệ số đổi từ μg/m3 sang đơn vị EPA ở 25°C: ppb = μg/m3 * 24.45 / khối lượng mol; CO thêm /1000 (ppm)
+    private static final double[] UNIT_FACTORS = {
+            1,
+            1,
+            24.45 / 48.00,
+            24.45 / 46.01,
+            24.45 / 64.07,
+            24.45 / 28.01 / 1000
+    };
+
+    /**
+     * Chỉ số phụ của một chất từ nồng độ μg/m3; giá trị âm/NaN trả về -1
+     */
+    public double subIndex(int pollutant, double concentration) {
+        if (!(concentration >= 0)) {
+            return -1;
+        }
+        return interpolate(CONCENTRATION_BREAKPOINTS[pollutant], CONCENTRATION_SCALES[pollutant],
+                concentration * UNIT_FACTORS[pollutant]);
+    }
+
+    /**
+     * Tính chỉ số phụ của mọi chất từ 'components'; out[p] = -1 nếu thiếu dữ liệu.
+     * Trả về vị trí chất có chỉ số lớn nhất (chất ô nhiễm chính) hoặc -1 nếu không có chất nào.
+     */
+    public int subIndices(Map<String, Double> components, double[] out) {
+        int dominant = -1;
+        for (int p = 0; p < POLLUTANT_COUNT; p++) {
+            Double value = components != null ? components.get(KEYS[p]) : null;
+            out[p] = value != null ? subIndex(p, value) : -1;
+            if (out[p] >= 0 && (dominant < 0 || out[p] > out[dominant])) {
+                dominant = p;
+            }
+        }
+        return dominant;
+    }
+
+    /**
+     * Tính hàng loạt: out[i] = chỉ số phụ của chất 'pollutant' ứng với concentrations[i]
+     */
+    public void subIndices(int pollutant, float[] concentrations, float[] out, int length) {
+        double[] breakpoints = CONCENTRATION_BREAKPOINTS[pollutant];
+        double scale = CONCENTRATION_SCALES[pollutant];
+        double factor = UNIT_FACTORS[pollutant];
+        for (int i = 0; i < length; i++) {
+            double c = concentrations[i];
+            out[i] = c >= 0 ? (float) interpolate(breakpoints, scale, c * factor) : -1;
+        }
+    }
+
+    /**
+     * Tính hàng loạt AQI tổng (max các chỉ số phụ) cho dữ liệu dạng cột:
+     * columns[p] là cột nồng độ của chất p (theo thứ tự PM25..CO), cột null được bỏ qua.
+     */
+    public void usAqi(float[][] columns, int length, float[] out) {
+        float[] scratch = new float[length];
+        Arrays.fill(out, 0, length, -1f);
+        for (int p = 0; p < POLLUTANT_COUNT; p++) {
+            if (columns[p] == null) {
+                continue;
+            }
+            subIndices(p, columns[p], scratch, length);
+            for (int i = 0; i < length; i++) {
+                out[i] = Math.max(out[i], scratch[i]);
+            }
+        }
+    }
+
+    public static String label(int pollutant) {
+        return LABELS[pollutant];
+    }
+
+    /**
+     * Công thức EPA: cắt nồng độ về độ chính xác của bảng, rồi nội suy tuyến tính trong hạng chứa nó.
+     * Hạng i có nồng độ [cận trên hạng trước + bước, cận trên] và chỉ số [cận trên hạng trước + 1, cận trên].
+     */
+    private static double interpolate(double[] breakpoints, double scale, double c) {
+        // Sai số làm tròn khi đổi đơn vị (ví dụ 52.9999999 ppb) không được đẩy nồng độ xuống bước dưới
+        double truncated = Math.floor(c * scale + 1e-6) / scale;
+        int last = breakpoints.length - 1;
+        if (truncated >= breakpoints[last]) {
+            return MAX_INDEX;
+        }
+        int i = 1;
+        while (truncated > breakpoints[i]) {
+            i++;
+        }
+        double cLo = i == 1 ? 0 : breakpoints[i - 1] + 1 / scale;
+        double iLo = i == 1 ? 0 : INDEX_BREAKPOINTS[i - 1] + 1;
+        return iLo + (INDEX_BREAKPOINTS[i] - iLo) * (truncated - cLo) / (breakpoints[i] - cLo);
+    }
+}
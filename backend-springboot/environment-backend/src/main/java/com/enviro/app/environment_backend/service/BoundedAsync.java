@@ -0,0 +1,25 @@
+package com.enviro.app.environment_backend.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Gửi tác vụ lên pool có giới hạn (aqiExecutor). Khi pool từ chối (hàng đợi đầy hoặc đang shutdown),
+ * trả về future đã lỗi để luồng gọi dùng ngay kết quả "N/A", thay vì tự chạy lời gọi upstream
+ * trên luồng request mà không có thời hạn.
+ */
+final class BoundedAsync {
+
+    private BoundedAsync() {
+    }
+
+    static <T> CompletableFuture<T> supply(Supplier<T> supplier, Executor executor) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.enviro.app.environment_backend.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker đơn giản cho các lời gọi upstream.
+ * - CLOSED: cho phép gọi, ghi nhận kết quả trong cửa sổ trượt N lần gọi gần nhất
+ * - OPEN: tỉ lệ lỗi vượt ngưỡng => từ chối ngay (fail fast) trong openDuration
+ * - HALF_OPEN: hết openDuration => cho một lời gọi thử; thành công thì đóng lại, lỗi thì mở lại
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Ném ra khi breaker đang mở và lời gọi bị từ chối
+     */
+    public static class OpenException extends RuntimeException {
+        public OpenException(String name) {
+            super("Circuit breaker '" + name + "' đang mở, từ chối gọi upstream");
+        }
+    }
+
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationMillis;
+
+    // Cửa sổ trượt theo số lần gọi (true = lỗi)
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int failureCount;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInProgress;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls,
+                          double failureRateThreshold, long openDurationMillis) {
+        this.name = name;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    public <T> T execute(Supplier<T> call) {
+        if (!tryAcquire()) {
+            throw new OpenException(name);
+        }
+        try {
+            T result = call.get();
+            onSuccess();
+            return result;
+        } catch (Throwable e) {
+            // Bắt cả Error: nếu không, lời gọi thử HALF_OPEN lỗi sẽ giữ trialInProgress mãi mãi
+            onFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * Kiểm tra (không thay đổi trạng thái) xem một lời gọi mới có được phép không
+     */
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> System.currentTimeMillis() - openedAt >= openDurationMillis;
+            case HALF_OPEN -> !trialInProgress;
+        };
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMillis) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDurationMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInProgress) {
+                return false;
+            }
+            trialInProgress = true;
+        }
+        return true;
+    }
+
+    private synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            trialInProgress = false;
+            state = State.CLOSED;
+            resetWindow();
+            return;
+        }
+        record(false);
+    }
+
+    private synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            trialInProgress = false;
+            open();
+            return;
+        }
+        record(true);
+        if (windowCount >= minimumCalls
+                && (double) failureCount / windowCount * 100 >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                failureCount--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            failureCount++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        resetWindow();
+        System.err.println("Circuit breaker '" + name + "' chuyển sang OPEN");
+    }
+
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        failureCount = 0;
+    }
+}
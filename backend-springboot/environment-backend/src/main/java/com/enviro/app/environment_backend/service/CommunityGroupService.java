@@ -22,11 +22,14 @@ public class CommunityGroupService {
 
     private final CommunityGroupRepository groupRepository;
     private final GroupMemberRepository memberRepository;
+    private final GroupTimelineStore timelineStore;
 
     public CommunityGroupService(CommunityGroupRepository groupRepository,
-                                GroupMemberRepository memberRepository) {
+                                GroupMemberRepository memberRepository,
+                                GroupTimelineStore timelineStore) {
         this.groupRepository = groupRepository;
         this.memberRepository = memberRepository;
+        this.timelineStore = timelineStore;
     }
 
     public List<CommunityGroupResponse> getAllGroups(User currentUser) {
@@ -64,6 +67,7 @@ public class CommunityGroupService {
                 .role("admin")
                 .build();
         memberRepository.save(admin);
+        timelineStore.invalidate(creator.getId());
 
         return mapToResponse(saved, creator);
     }
@@ -83,6 +87,7 @@ public class CommunityGroupService {
                 .role("member")
                 .build();
         memberRepository.save(member);
+        timelineStore.invalidate(user.getId());
 
         group.setMemberCount(group.getMemberCount() + 1);
         groupRepository.save(group);
@@ -101,6 +106,7 @@ public class CommunityGroupService {
         }
 
         memberRepository.delete(member.get());
+        timelineStore.invalidate(user.getId());
         group.setMemberCount(group.getMemberCount() - 1);
         groupRepository.save(group);
     }
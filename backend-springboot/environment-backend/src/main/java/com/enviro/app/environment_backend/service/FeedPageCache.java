@@ -0,0 +1,191 @@
+package com.enviro.app.environment_backend.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.enviro.app.environment_backend.dto.CursorPageResponse;
+import com.enviro.app.environment_backend.dto.PostResponse;
+
+/**
+ * Cache các trang feed chung đã dựng sẵn, dùng chung cho mọi user.
+ * Trang trong cache không chứa cờ "đã like" (luôn false); cờ này được ghép theo từng user lúc trả về
+ * (xem LikedPostIndex). Khóa cache là (cursor, kích thước trang).
+ * Trang bị bỏ khi có bài viết mới (trang đầu) hoặc khi một bài viết trong trang được like/comment.
+ */
+@Component
+public class FeedPageCache {
+
+    private final long ttlMillis;
+    private final Map<PageKey, CachedPage> pages;
+
+    // Bài viết -> các trang đang chứa nó, để bỏ đúng trang khi bài viết thay đổi
+    private final Map<UUID, Set<PageKey>> pagesByPost = new ConcurrentHashMap<>();
+
+    // Số thứ tự của mỗi lần invalidate, và số thứ tự lần invalidate gần nhất theo nhóm (stripe) bài viết / trang đầu.
+    // Trang được dựng trong lúc một bài viết của nó bị invalidate sẽ không được đưa vào cache,
+    // còn like trên các bài viết khác không làm hỏng trang đang dựng.
+    private static final int STRIPES = 1024;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLongArray postStripes = new AtomicLongArray(STRIPES);
+    private final AtomicLong firstPagesInvalidatedAt = new AtomicLong();
+
+    public FeedPageCache(@Value("${posts.feed.cache.ttl-ms:30000}") long ttlMillis,
+                         @Value("${posts.feed.cache.max-pages:200}") int maxPages) {
+        this.ttlMillis = ttlMillis;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PageKey, CachedPage> eldest) {
+                if (size() > maxPages) {
+                    unindex(eldest.getKey(), eldest.getValue().page);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Lấy trang từ cache, hoặc dựng bằng `loader` và lưu lại
+     */
+    public CursorPageResponse<PostResponse> get(String cursor, int pageSize,
+                                                Supplier<CursorPageResponse<PostResponse>> loader) {
+        PageKey key = new PageKey(cursor, pageSize);
+        CachedPage cached = getPage(key);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            return cached.page;
+        }
+
+        long sequenceBefore = sequence.get();
+        CursorPageResponse<PostResponse> page = loader.get();
+        putPage(key, page, sequenceBefore);
+        return page;
+    }
+
+    /**
+     * Bài viết được like/comment: bỏ các trang chứa nó (sau khi transaction commit)
+     */
+    public void invalidatePost(UUID postId) {
+        AfterCommit.run(() -> {
+            postStripes.set(stripeOf(postId), sequence.incrementAndGet());
+            Set<PageKey> keys = pagesByPost.remove(postId);
+            if (keys != null) {
+                keys.forEach(this::removePage);
+            }
+        });
+    }
+
+    /**
+     * Có bài viết mới trên feed chung: bỏ các trang đầu (sau khi transaction commit)
+     */
+    public void invalidateFirstPages() {
+        AfterCommit.run(() -> {
+            firstPagesInvalidatedAt.set(sequence.incrementAndGet());
+            removeFirstPages();
+        });
+    }
+
+    private synchronized CachedPage getPage(PageKey key) {
+        return pages.get(key);
+    }
+
+    private synchronized void putPage(PageKey key, CursorPageResponse<PostResponse> page, long sequenceBefore) {
+        if (invalidatedSince(key, page, sequenceBefore)) {
+            return;
+        }
+        CachedPage previous = pages.put(key, new CachedPage(page, System.currentTimeMillis() + ttlMillis));
+        if (previous != null) {
+            unindex(key, previous.page);
+        }
+        for (PostResponse item : page.getItems()) {
+            pagesByPost.computeIfAbsent(item.getId(), id -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    private synchronized void removePage(PageKey key) {
+        CachedPage removed = pages.remove(key);
+        if (removed != null) {
+            unindex(key, removed.page);
+        }
+    }
+
+    private synchronized void removeFirstPages() {
+        pages.entrySet().removeIf(entry -> {
+            if (entry.getKey().cursor != null) {
+                return false;
+            }
+            unindex(entry.getKey(), entry.getValue().page);
+            return true;
+        });
+    }
+
+    private boolean invalidatedSince(PageKey key, CursorPageResponse<PostResponse> page, long sequenceBefore) {
+        if (key.cursor == null && firstPagesInvalidatedAt.get() > sequenceBefore) {
+            return true;
+        }
+        for (PostResponse item : page.getItems()) {
+            if (postStripes.get(stripeOf(item.getId())) > sequenceBefore) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int stripeOf(UUID postId) {
+        return (postId.hashCode() & 0x7fffffff) % STRIPES;
+    }
+
+    private void unindex(PageKey key, CursorPageResponse<PostResponse> page) {
+        for (PostResponse item : page.getItems()) {
+            pagesByPost.computeIfPresent(item.getId(), (id, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private static final class PageKey {
+        private final String cursor;
+        private final int pageSize;
+
+        private PageKey(String cursor, int pageSize) {
+            this.cursor = cursor == null || cursor.isBlank() ? null : cursor;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PageKey other)) {
+                return false;
+            }
+            return pageSize == other.pageSize && Objects.equals(cursor, other.cursor);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(cursor, pageSize);
+        }
+    }
+
+    private static final class CachedPage {
+        private final CursorPageResponse<PostResponse> page;
+        private final long expiresAt;
+
+        private CachedPage(CursorPageResponse<PostResponse> page, long expiresAt) {
+            this.page = page;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.enviro.app.environment_backend.service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.enviro.app.environment_backend.dto.GeocodingResponse;
+import com.enviro.app.environment_backend.model.GeocodedAddress;
+import com.enviro.app.environment_backend.repository.GeocodedAddressRepository;
+
+/**
+ * Cache Geocoding cho vị trí mặc định của người dùng:
+ * LRU trong bộ nhớ phía trước, bảng geocoded_addresses phía sau.
+ * Địa chỉ được geocode khi người dùng cập nhật profile, nên đường đọc AQI
+ * (dashboard) không bao giờ gọi Geocoding API. Địa chỉ chưa có trong cache (dữ liệu cũ, hoặc lần geocode
+ * trước thất bại) được ghi nhận là "chưa có" trong `negative-ttl-seconds` và được geocode nền một lần.
+ */
+@Service
+public class GeocodingCacheService {
+
+    private final GeocodedAddressRepository geocodedAddressRepository;
+    private final AqiService aqiService;
+    private final ExecutorService aqiExecutor;
+    private final long negativeTtlMillis;
+    private final Map<String, CachedCoordinates> lru;
+
+    public GeocodingCacheService(GeocodedAddressRepository geocodedAddressRepository,
+                                 AqiService aqiService,
+                                 @Qualifier("aqiExecutor") ExecutorService aqiExecutor,
+                                 @Value("${aqi.geocoding-cache.max-entries:5000}") int maxEntries,
+                                 @Value("${aqi.geocoding-cache.negative-ttl-seconds:3600}") long negativeTtlSeconds) {
+        this.geocodedAddressRepository = geocodedAddressRepository;
+        this.aqiService = aqiService;
+        this.aqiExecutor = aqiExecutor;
+        this.negativeTtlMillis = negativeTtlSeconds * 1000;
+        this.lru = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCoordinates> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Tra tọa độ của một địa chỉ: LRU -> DB. Không gọi Geocoding API trên luồng đọc:
+     * địa chỉ chưa có trả về null ngay và được geocode nền (tối đa một lần mỗi `negative-ttl-seconds`).
+     */
+    public GeocodingResponse getCoordinates(String address) {
+        String key = normalize(address);
+        if (key.isEmpty()) {
+            return null;
+        }
+
+        CachedCoordinates cached = getFromLru(key);
+        if (cached != null && (cached.coords != null || cached.retryAt > System.currentTimeMillis())) {
+            return cached.coords;
+        }
+
+        GeocodingResponse stored = geocodedAddressRepository.findById(key)
+                .map(this::toResponse)
+                .orElse(null);
+        if (stored != null) {
+            putToLru(key, new CachedCoordinates(stored, 0));
+            return stored;
+        }
+
+        // Dữ liệu cũ (địa chỉ được lưu trước khi có cache) hoặc lần geocode trước thất bại:
+        // ghi nhận "chưa có" trước để các lượt đọc sau trả ngay, rồi geocode nền một lần
+        markMissing(key);
+        try {
+            aqiExecutor.execute(() -> resolveAndStore(address));
+        } catch (RejectedExecutionException e) {
+            // Pool đầy hoặc đang shutdown - thử lại sau khi hết hạn ghi nhận
+        }
+        return null;
+    }
+
+    /**
+     * Geocode địa chỉ trên pool AQI rồi chạy `then` (ví dụ reindex cảnh báo) khi đã lưu xong.
+     * Gọi sau khi người dùng đổi defaultLocation: không giữ luồng request, và việc ghi geocoded_addresses
+     * chạy trong transaction riêng của luồng pool (không dính vào transaction vừa commit của request).
+     */
+    public void resolveInBackground(String address, Runnable then) {
+        try {
+            aqiExecutor.execute(() -> {
+                resolveAndStore(address);
+                then.run();
+            });
+        } catch (RejectedExecutionException e) {
+            // Pool đầy hoặc đang shutdown - lượt đọc đầu tiên sẽ geocode nền lại
+            markMissing(normalize(address));
+        }
+    }
+
+    /**
+     * Geocode địa chỉ và lưu vào cache. Chỉ gọi trên luồng nền (resolveInBackground / getCoordinates)
+     */
+    public GeocodingResponse resolveAndStore(String address) {
+        String key = normalize(address);
+        if (key.isEmpty()) {
+            return null;
+        }
+
+        GeocodingResponse coords = aqiService.getCoordinatesFromAddress(address);
+        if (coords == null) {
+            markMissing(key);
+            return null;
+        }
+
+        geocodedAddressRepository.save(GeocodedAddress.builder()
+                .normalizedAddress(key)
+                .address(address)
+                .latitude(coords.getLat())
+                .longitude(coords.getLon())
+                .resolvedName(coords.getName())
+                .build());
+        putToLru(key, new CachedCoordinates(coords, 0));
+        return coords;
+    }
+
+    /**
+     * Chuẩn hóa địa chỉ: bỏ khoảng trắng thừa, chữ thường
+     */
+    public static String normalize(String address) {
+        if (address == null) {
+            return "";
+        }
+        return address.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private void markMissing(String key) {
+        putToLru(key, new CachedCoordinates(null, System.currentTimeMillis() + negativeTtlMillis));
+    }
+
+    private synchronized CachedCoordinates getFromLru(String key) {
+        return lru.get(key);
+    }
+
+    private synchronized void putToLru(String key, CachedCoordinates value) {
+        lru.put(key, value);
+    }
+
+    private GeocodingResponse toResponse(GeocodedAddress entity) {
+        GeocodingResponse response = new GeocodingResponse();
+        response.setName(entity.getResolvedName());
+        response.setLat(entity.getLatitude());
+        response.setLon(entity.getLongitude());
+        return response;
+    }
+
+    /**
+     * Tọa độ đã biết, hoặc (coords = null) ghi nhận "chưa có" đến thời điểm retryAt
+     */
+    private static final class CachedCoordinates {
+        private final GeocodingResponse coords;
+        private final long retryAt;
+
+        private CachedCoordinates(GeocodingResponse coords, long retryAt) {
+            this.coords = coords;
+            this.retryAt = retryAt;
+        }
+    }
+}
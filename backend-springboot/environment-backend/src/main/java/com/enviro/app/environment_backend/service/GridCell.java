@@ -0,0 +1,41 @@
+package com.enviro.app.environment_backend.service;
+
+import lombok.Value;
+
+/**
+ * Ô lưới địa lý dùng làm khóa cache AQI.
+ * Tọa độ được "snap" về ô có kích thước cellSize độ, nên mọi điểm trong cùng
+ * một ô (cùng quận/phường) dùng chung một kết quả AQI.
+ */
+@Value
+public class GridCell {
+
+    int latIndex;
+    int lonIndex;
+    double cellSize;
+
+    public static GridCell of(double lat, double lon, double cellSize) {
+        return new GridCell(
+                (int) Math.floor(lat / cellSize),
+                (int) Math.floor(lon / cellSize),
+                cellSize);
+    }
+
+    /**
+     * Mã số duy nhất của ô (với cùng cellSize), dùng làm khóa lưu trữ
+     */
+    public long getId() {
+        return ((long) latIndex << 32) | (lonIndex & 0xffffffffL);
+    }
+
+    /**
+     * Vĩ độ tâm ô, dùng khi gọi API upstream thay cho tọa độ gốc của người dùng
+     */
+    public double getCenterLat() {
+        return (latIndex + 0.5) * cellSize;
+    }
+
+    public double getCenterLon() {
+        return (lonIndex + 0.5) * cellSize;
+    }
+}
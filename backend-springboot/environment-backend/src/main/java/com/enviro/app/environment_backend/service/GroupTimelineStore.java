@@ -0,0 +1,302 @@
+package com.enviro.app.environment_backend.service;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.enviro.app.environment_backend.repository.GroupMemberRepository;
+import com.enviro.app.environment_backend.repository.PostRepository;
+
+/**
+ * Timeline nhóm cộng đồng được materialize theo từng user trong bộ nhớ.
+ * - Mỗi timeline là một ring buffer (mảng long nguyên thủy) các bài viết mới nhất từ các nhóm của user
+ * - Fan-out khi ghi: bài viết mới trong nhóm nhỏ được thêm vào timeline của các thành viên đang có timeline
+ *   (chỉ mục nhóm -> thành viên, như AqiAlertEngine), nên đọc timeline chỉ là một lần tra theo key
+ * - Nhóm lớn (quá `fanout-max-members` thành viên) không fan-out; bài viết của chúng được đọc từ DB khi đọc
+ * - Số timeline trong bộ nhớ có giới hạn (LRU); timeline bị bỏ sẽ được dựng lại từ DB ở lần đọc sau
+ */
+@Component
+public class GroupTimelineStore {
+
+    // Thứ tự mới nhất trước; so sánh UUID không dấu cho khớp thứ tự uuid của PostgreSQL
+    private static final Comparator<KeysetCursor> NEWEST_FIRST = Comparator
+            .comparing((KeysetCursor key) -> key.getCreatedAt().toInstant())
+            .thenComparing(KeysetCursor::getId, GroupTimelineStore::compareUuid)
+            .reversed();
+
+    private final GroupMemberRepository memberRepository;
+    private final PostRepository postRepository;
+
+    private final int timelineSize;
+    private final int fanoutMaxMembers;
+
+    private final Map<UUID, Timeline> timelines;
+
+    // Nhóm nhỏ -> các user đang có timeline trong bộ nhớ
+    private final Map<UUID, Set<UUID>> subscribers = new ConcurrentHashMap<>();
+
+    public GroupTimelineStore(GroupMemberRepository memberRepository,
+                              PostRepository postRepository,
+                              @Value("${posts.timeline.size:200}") int timelineSize,
+                              @Value("${posts.timeline.fanout-max-members:500}") int fanoutMaxMembers,
+                              @Value("${posts.timeline.max-timelines:10000}") int maxTimelines) {
+        this.memberRepository = memberRepository;
+        this.postRepository = postRepository;
+        this.timelineSize = timelineSize;
+        this.fanoutMaxMembers = fanoutMaxMembers;
+        this.timelines = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Timeline> eldest) {
+                if (size() > maxTimelines) {
+                    unsubscribe(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Bài viết mới trong nhóm: thêm vào timeline của các thành viên (sau khi transaction commit)
+     */
+    public void onGroupPost(UUID groupId, int memberCount, UUID postId, OffsetDateTime createdAt) {
+        AfterCommit.run(() -> fanOut(groupId, memberCount, postId, createdAt));
+    }
+
+    /**
+     * Thành viên nhóm thay đổi: bỏ timeline của user, sẽ dựng lại ở lần đọc sau
+     */
+    public void invalidate(UUID userId) {
+        AfterCommit.run(() -> {
+            Timeline timeline = removeTimeline(userId);
+            if (timeline != null) {
+                unsubscribe(userId, timeline);
+            }
+        });
+    }
+
+    /**
+     * Tối đa `limit` khóa bài viết (createdAt, id) đứng sau con trỏ, mới nhất trước
+     */
+    public List<KeysetCursor> page(UUID userId, KeysetCursor after, int limit) {
+        Timeline timeline = timelineOf(userId);
+        List<KeysetCursor> keys = timeline.before(after, limit);
+
+        // Ring buffer không còn giữ đủ lịch sử: đọc các trang cũ hơn từ DB
+        Set<UUID> smallGroups = timeline.smallGroups();
+        if (keys.size() < limit && !timeline.isComplete() && !smallGroups.isEmpty()) {
+            keys = loadKeys(smallGroups, after, limit);
+        }
+
+        Set<UUID> largeGroups = timeline.largeGroups();
+        if (!largeGroups.isEmpty()) {
+            Set<UUID> seen = new HashSet<>();
+            List<KeysetCursor> merged = new ArrayList<>();
+            for (KeysetCursor key : keys) {
+                if (seen.add(key.getId())) {
+                    merged.add(key);
+                }
+            }
+            for (KeysetCursor key : loadKeys(largeGroups, after, limit)) {
+                if (seen.add(key.getId())) {
+                    merged.add(key);
+                }
+            }
+            merged.sort(NEWEST_FIRST);
+            keys = merged.size() > limit ? merged.subList(0, limit) : merged;
+        }
+        return keys;
+    }
+
+    private void fanOut(UUID groupId, int memberCount, UUID postId, OffsetDateTime createdAt) {
+        Set<UUID> userIds = subscribers.get(groupId);
+        if (userIds == null) {
+            return;
+        }
+        if (memberCount > fanoutMaxMembers) {
+            // Nhóm đã vượt ngưỡng: các timeline chuyển sang đọc nhóm này từ DB
+            subscribers.remove(groupId);
+            for (UUID userId : userIds) {
+                Timeline timeline = getTimeline(userId);
+                if (timeline != null) {
+                    timeline.markLarge(groupId);
+                }
+            }
+            return;
+        }
+        long micros = toMicros(createdAt);
+        for (UUID userId : userIds) {
+            Timeline timeline = getTimeline(userId);
+            if (timeline != null) {
+                timeline.add(postId, micros);
+            }
+        }
+    }
+
+    private Timeline timelineOf(UUID userId) {
+        Timeline existing = getTimeline(userId);
+        if (existing != null) {
+            return existing;
+        }
+
+        Set<UUID> smallGroups = new HashSet<>();
+        Set<UUID> largeGroups = new HashSet<>();
+        for (GroupMemberRepository.MembershipView membership : memberRepository.findMembershipsByUserId(userId)) {
+            int members = membership.getMemberCount() != null ? membership.getMemberCount() : 0;
+            (members > fanoutMaxMembers ? largeGroups : smallGroups).add(membership.getGroupId());
+        }
+
+        // Đăng ký nhận fan-out trước khi đọc DB để không lỡ bài viết được đăng trong lúc dựng timeline
+        Timeline timeline = new Timeline(timelineSize, smallGroups, largeGroups);
+        putTimeline(userId, timeline);
+        smallGroups.forEach(groupId -> subscribers.computeIfAbsent(groupId, id -> ConcurrentHashMap.newKeySet()).add(userId));
+
+        if (!smallGroups.isEmpty()) {
+            List<KeysetCursor> keys = loadKeys(smallGroups, null, timelineSize);
+            // Thêm từ cũ đến mới để khi đầy, ring buffer ghi đè bài cũ nhất
+            for (int i = keys.size() - 1; i >= 0; i--) {
+                timeline.add(keys.get(i).getId(), toMicros(keys.get(i).getCreatedAt()));
+            }
+            if (keys.size() >= timelineSize) {
+                timeline.markIncomplete();
+            }
+        }
+        return timeline;
+    }
+
+    private List<KeysetCursor> loadKeys(Set<UUID> groupIds, KeysetCursor after, int limit) {
+        PageRequest pageable = PageRequest.of(0, limit);
+        List<PostRepository.PostKey> rows = after == null
+                ? postRepository.findGroupPostKeys(groupIds, pageable)
+                : postRepository.findGroupPostKeysAfter(groupIds, after.getCreatedAt(), after.getId(), pageable);
+        List<KeysetCursor> keys = new ArrayList<>(rows.size());
+        for (PostRepository.PostKey row : rows) {
+            keys.add(new KeysetCursor(row.getCreatedAt(), row.getId()));
+        }
+        return keys;
+    }
+
+    private void unsubscribe(UUID userId, Timeline timeline) {
+        for (UUID groupId : timeline.smallGroups()) {
+            subscribers.computeIfPresent(groupId, (id, users) -> {
+                users.remove(userId);
+                return users.isEmpty() ? null : users;
+            });
+        }
+    }
+
+    private synchronized Timeline getTimeline(UUID userId) {
+        return timelines.get(userId);
+    }
+
+    private synchronized void putTimeline(UUID userId, Timeline timeline) {
+        timelines.put(userId, timeline);
+    }
+
+    private synchronized Timeline removeTimeline(UUID userId) {
+        return timelines.remove(userId);
+    }
+
+    private static long toMicros(OffsetDateTime time) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, time.toInstant());
+    }
+
+    private static OffsetDateTime fromMicros(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC);
+    }
+
+    private static int compareUuid(UUID a, UUID b) {
+        int byHigh = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return byHigh != 0 ? byHigh : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    /**
+     * Ring buffer các bài viết: mỗi phần tử là (id 128 bit, createdAt micro giây) trong ba mảng song song
+     */
+    private static final class Timeline {
+        private final long[] idHigh;
+        private final long[] idLow;
+        private final long[] createdAtMicros;
+        private final Set<UUID> smallGroups;
+        private final Set<UUID> largeGroups;
+        private int next;
+        private int size;
+        // true khi ring buffer chứa toàn bộ bài viết của các nhóm nhỏ (chưa ghi đè phần tử nào)
+        private boolean complete = true;
+
+        private Timeline(int capacity, Set<UUID> smallGroups, Set<UUID> largeGroups) {
+            this.idHigh = new long[capacity];
+            this.idLow = new long[capacity];
+            this.createdAtMicros = new long[capacity];
+            this.smallGroups = new HashSet<>(smallGroups);
+            this.largeGroups = new HashSet<>(largeGroups);
+        }
+
+        private synchronized void add(UUID postId, long micros) {
+            long high = postId.getMostSignificantBits();
+            long low = postId.getLeastSignificantBits();
+            for (int i = 0; i < size; i++) {
+                if (idHigh[i] == high && idLow[i] == low) {
+                    return;
+                }
+            }
+            if (size == idHigh.length) {
+                complete = false;
+            } else {
+                size++;
+            }
+            idHigh[next] = high;
+            idLow[next] = low;
+            createdAtMicros[next] = micros;
+            next = (next + 1) % idHigh.length;
+        }
+
+        private synchronized List<KeysetCursor> before(KeysetCursor after, int limit) {
+            List<KeysetCursor> keys = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                KeysetCursor key = new KeysetCursor(fromMicros(createdAtMicros[i]), new UUID(idHigh[i], idLow[i]));
+                if (after == null || NEWEST_FIRST.compare(key, after) > 0) {
+                    keys.add(key);
+                }
+            }
+            keys.sort(NEWEST_FIRST);
+            return keys.size() > limit ? new ArrayList<>(keys.subList(0, limit)) : keys;
+        }
+
+        // Nhóm chuyển hẳn sang đọc từ DB: bỏ khỏi nhóm nhỏ để fallback DB không truy vấn nó hai lần
+        private synchronized void markLarge(UUID groupId) {
+            smallGroups.remove(groupId);
+            largeGroups.add(groupId);
+        }
+
+        private synchronized void markIncomplete() {
+            complete = false;
+        }
+
+        private synchronized boolean isComplete() {
+            return complete;
+        }
+
+        private synchronized Set<UUID> smallGroups() {
+            return new HashSet<>(smallGroups);
+        }
+
+        private synchronized Set<UUID> largeGroups() {
+            return new HashSet<>(largeGroups);
+        }
+    }
+}
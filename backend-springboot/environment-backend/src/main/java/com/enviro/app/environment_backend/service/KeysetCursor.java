@@ -0,0 +1,58 @@
+package com.enviro.app.environment_backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import lombok.Value;
+
+/**
+ * Con trỏ phân trang theo khóa (created_at, id) cho các danh sách sắp xếp mới nhất trước.
+ * Được mã hóa Base64 (URL-safe) để client coi như một chuỗi mờ.
+ */
+@Value
+public class KeysetCursor {
+
+    OffsetDateTime createdAt;
+    UUID id;
+
+    /**
+     * Mã hóa theo micro giây (đúng độ chính xác của TIMESTAMPTZ trong PostgreSQL)
+     */
+    public String encode() {
+        Instant instant = createdAt.toInstant();
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+        String raw = micros + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String encode(OffsetDateTime createdAt, UUID id) {
+        return new KeysetCursor(createdAt, id).encode();
+    }
+
+    /**
+     * Giải mã con trỏ từ client; null/rỗng nghĩa là trang đầu tiên
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            long micros = Long.parseLong(raw.substring(0, separator));
+            UUID id = UUID.fromString(raw.substring(separator + 1));
+            OffsetDateTime createdAt = Instant.EPOCH.plus(micros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC);
+            return new KeysetCursor(createdAt, id);
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Con trỏ phân trang không hợp lệ.");
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.enviro.app.environment_backend.service;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.enviro.app.environment_backend.dto.PostResponse;
+import com.enviro.app.environment_backend.repository.LikeRepository;
+
+/**
+ * Tập bài viết user đã like, giữ trong bộ nhớ để ghép cờ "đã like" vào trang feed dùng chung.
+ * Mỗi user có một mảng ID đã sắp xếp (hai mảng long song song, tìm nhị phân) chứa các bài viết
+ * được tạo trong `window-days` gần nhất; bài viết cũ hơn được kiểm tra bằng một truy vấn nhỏ theo ID.
+ * Số user được giữ có giới hạn (LRU).
+ */
+@Component
+public class LikedPostIndex {
+
+    private final LikeRepository likeRepository;
+    private final long windowDays;
+    private final Map<UUID, LikedSet> sets;
+
+    // Số lần like/unlike theo nhóm (stripe) user, để không giữ tập được đọc từ DB trước một lần toggle
+    private static final int STRIPES = 1024;
+    private final AtomicLongArray userStripes = new AtomicLongArray(STRIPES);
+
+    public LikedPostIndex(LikeRepository likeRepository,
+                          @Value("${posts.feed.liked-index.window-days:30}") long windowDays,
+                          @Value("${posts.feed.liked-index.max-users:10000}") int maxUsers) {
+        this.likeRepository = likeRepository;
+        this.windowDays = windowDays;
+        this.sets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, LikedSet> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    /**
+     * Các bài viết trong danh sách mà user đã like
+     */
+    public Set<UUID> likedAmong(UUID userId, Collection<PostResponse> posts) {
+        LikedSet liked = setOf(userId);
+        Set<UUID> result = new HashSet<>();
+        List<UUID> older = new ArrayList<>();
+        for (PostResponse post : posts) {
+            if (post.getCreatedAt() != null && post.getCreatedAt().isBefore(liked.since)) {
+                older.add(post.getId());
+            } else if (liked.contains(post.getId())) {
+                result.add(post.getId());
+            }
+        }
+        if (!older.isEmpty()) {
+            result.addAll(likeRepository.findLikedPostIdsAmong(userId, older));
+        }
+        return result;
+    }
+
+    /**
+     * Cập nhật tập đã like sau khi user like/unlike (sau khi transaction commit)
+     */
+    public void onLikeToggled(UUID userId, UUID postId, boolean liked) {
+        AfterCommit.run(() -> {
+            userStripes.incrementAndGet(stripeOf(userId));
+            LikedSet set = getSet(userId);
+            if (set != null) {
+                set.update(postId, liked);
+            }
+        });
+    }
+
+    private LikedSet setOf(UUID userId) {
+        LikedSet existing = getSet(userId);
+        if (existing != null) {
+            return existing;
+        }
+        int stripe = stripeOf(userId);
+        long togglesBefore = userStripes.get(stripe);
+        OffsetDateTime since = OffsetDateTime.now().minusDays(windowDays);
+        LikedSet loaded = new LikedSet(since, likeRepository.findPostIdsLikedSince(userId, since));
+        // User vừa like/unlike trong lúc đọc DB: dùng kết quả cho lần này nhưng không giữ lại
+        if (userStripes.get(stripe) == togglesBefore) {
+            putSet(userId, loaded);
+        }
+        return loaded;
+    }
+
+    private static int stripeOf(UUID userId) {
+        return (userId.hashCode() & 0x7fffffff) % STRIPES;
+    }
+
+    private synchronized LikedSet getSet(UUID userId) {
+        return sets.get(userId);
+    }
+
+    private synchronized void putSet(UUID userId, LikedSet set) {
+        sets.put(userId, set);
+    }
+
+    /**
+     * Tập UUID đã sắp xếp (theo 64 bit cao rồi 64 bit thấp), thay bằng mảng mới mỗi lần thay đổi
+     */
+    private static final class LikedSet {
+        private final OffsetDateTime since;
+        private long[] high;
+        private long[] low;
+
+        private LikedSet(OffsetDateTime since, List<UUID> postIds) {
+            this.since = since;
+            UUID[] sorted = postIds.toArray(new UUID[0]);
+            Arrays.sort(sorted, LikedSet::compare);
+            this.high = new long[sorted.length];
+            this.low = new long[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                high[i] = sorted[i].getMostSignificantBits();
+                low[i] = sorted[i].getLeastSignificantBits();
+            }
+        }
+
+        private synchronized boolean contains(UUID postId) {
+            return indexOf(postId) >= 0;
+        }
+
+        private synchronized void update(UUID postId, boolean liked) {
+            int index = indexOf(postId);
+            if (liked && index < 0) {
+                int insertAt = -index - 1;
+                high = insert(high, insertAt, postId.getMostSignificantBits());
+                low = insert(low, insertAt, postId.getLeastSignificantBits());
+            } else if (!liked && index >= 0) {
+                high = remove(high, index);
+                low = remove(low, index);
+            }
+        }
+
+        // Tìm nhị phân; trả về -(vị trí chèn) - 1 nếu không có
+        private int indexOf(UUID postId) {
+            long h = postId.getMostSignificantBits();
+            long l = postId.getLeastSignificantBits();
+            int from = 0;
+            int to = high.length - 1;
+            while (from <= to) {
+                int mid = (from + to) >>> 1;
+                int cmp = high[mid] != h ? Long.compare(high[mid], h) : Long.compare(low[mid], l);
+                if (cmp < 0) {
+                    from = mid + 1;
+                } else if (cmp > 0) {
+                    to = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(from + 1);
+        }
+
+        private static int compare(UUID a, UUID b) {
+            int byHigh = Long.compare(a.getMostSignificantBits(), b.getMostSignificantBits());
+            return byHigh != 0 ? byHigh : Long.compare(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+        }
+
+        private static long[] insert(long[] values, int at, long value) {
+            long[] result = new long[values.length + 1];
+            System.arraycopy(values, 0, result, 0, at);
+            result[at] = value;
+            System.arraycopy(values, at, result, at + 1, values.length - at);
+            return result;
+        }
+
+        private static long[] remove(long[] values, int at) {
+            long[] result = new long[values.length - 1];
+            System.arraycopy(values, 0, result, 0, at);
+            System.arraycopy(values, at + 1, result, at, values.length - at - 1);
+            return result;
+        }
+    }
+}
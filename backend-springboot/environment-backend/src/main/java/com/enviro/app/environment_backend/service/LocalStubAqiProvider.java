@@ -0,0 +1,143 @@
+package com.enviro.app.environment_backend.service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import com.enviro.app.environment_backend.dto.AqiDataPoint;
+import com.enviro.app.environment_backend.dto.GeocodingResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * AqiProvider giả lập, đọc dữ liệu mẫu từ file JSON (profile "local-aqi").
+ * Kết quả chỉ phụ thuộc vào tọa độ và giờ hiện tại nên có thể lặp lại, dùng để load-test
+ * tầng cache/fan-out AQI mà không gọi OpenWeatherMap hay tốn API key.
+ */
+@Component
+@Profile("local-aqi")
+public class LocalStubAqiProvider implements AqiProvider {
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+
+    @Value("${aqi.local-provider.data:classpath:aqi/local-stub.json}")
+    private String dataLocation;
+
+    // Độ trễ giả lập cho mỗi lời gọi, mô phỏng upstream thật khi load-test
+    @Value("${aqi.local-provider.latency-ms:0}")
+    private long latencyMs;
+
+    @Value("${aqi.local-provider.forecast-hours:96}")
+    private int forecastHours;
+
+    private final List<AqiDataPoint> samples = new ArrayList<>();
+    private final List<GeocodingResponse> places = new ArrayList<>();
+
+    public LocalStubAqiProvider(ResourceLoader resourceLoader, ObjectMapper objectMapper) {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void load() throws Exception {
+        Resource resource = resourceLoader.getResource(dataLocation);
+        try (InputStream in = resource.getInputStream()) {
+            JsonNode root = objectMapper.readTree(in);
+            for (JsonNode sample : root.path("samples")) {
+                samples.add(objectMapper.treeToValue(sample, AqiDataPoint.class));
+            }
+            for (JsonNode place : root.path("places")) {
+                places.add(objectMapper.treeToValue(place, GeocodingResponse.class));
+            }
+        }
+        if (samples.isEmpty() || places.isEmpty()) {
+            throw new IllegalStateException("File dữ liệu AQI giả lập phải có 'samples' và 'places': " + dataLocation);
+        }
+        System.out.println("AQI provider giả lập: " + samples.size() + " mẫu, " + places.size() + " địa danh.");
+    }
+
+    @Override
+    public AqiDataPoint fetchCurrent(double lat, double lon) {
+        simulateLatency();
+        long hour = System.currentTimeMillis() / 3_600_000;
+        return sampleAt(lat, lon, hour);
+    }
+
+    @Override
+    public List<AqiDataPoint> fetchForecast(double lat, double lon) {
+        simulateLatency();
+        long hour = System.currentTimeMillis() / 3_600_000;
+        List<AqiDataPoint> forecast = new ArrayList<>(forecastHours);
+        for (int i = 0; i < forecastHours; i++) {
+            forecast.add(sampleAt(lat, lon, hour + i));
+        }
+        return forecast;
+    }
+
+    @Override
+    public GeocodingResponse geocode(String address) {
+        simulateLatency();
+        String query = address.trim().toLowerCase(Locale.ROOT);
+        for (GeocodingResponse place : places) {
+            if (query.contains(place.getName().toLowerCase(Locale.ROOT))) {
+                return place;
+            }
+        }
+        // Địa chỉ không khớp: chọn một địa danh cố định theo chuỗi địa chỉ
+        return places.get(Math.floorMod(query.hashCode(), places.size()));
+    }
+
+    @Override
+    public String reverseGeocode(double lat, double lon) {
+        simulateLatency();
+        GeocodingResponse nearest = null;
+        double best = Double.MAX_VALUE;
+        for (GeocodingResponse place : places) {
+            double dLat = place.getLat() - lat;
+            double dLon = place.getLon() - lon;
+            double distance = dLat * dLat + dLon * dLon;
+            if (distance < best) {
+                best = distance;
+                nearest = place;
+            }
+        }
+        return nearest != null ? nearest.getName() : null;
+    }
+
+    /**
+     * Chọn mẫu theo (vị trí ~0.01 độ, giờ): cùng vị trí và giờ luôn cho cùng kết quả
+     */
+    private AqiDataPoint sampleAt(double lat, double lon, long hour) {
+        long latKey = Math.round(lat * 100);
+        long lonKey = Math.round(lon * 100);
+        int offset = (int) Math.floorMod(latKey * 31 + lonKey, (long) samples.size());
+        AqiDataPoint sample = samples.get((int) Math.floorMod(offset + hour, (long) samples.size()));
+
+        AqiDataPoint dataPoint = new AqiDataPoint();
+        dataPoint.setMain(sample.getMain());
+        dataPoint.setComponents(sample.getComponents());
+        dataPoint.setDt(hour * 3600);
+        return dataPoint;
+    }
+
+    private void simulateLatency() {
+        if (latencyMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -10,11 +10,15 @@ import com.enviro.app.environment_backend.model.NotificationType;
 import com.enviro.app.environment_backend.model.User;
 import com.enviro.app.environment_backend.repository.NotificationRepository;
 import com.enviro.app.environment_backend.repository.NotificationSettingsRepository;
+import com.enviro.app.environment_backend.repository.UserRepository;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -27,18 +31,21 @@ public class NotificationService {
 
     private final NotificationRepository notificationRepository;
     private final NotificationSettingsRepository settingsRepository;
+    private final UserRepository userRepository;
 
     public NotificationService(NotificationRepository notificationRepository,
-                              NotificationSettingsRepository settingsRepository) {
+                              NotificationSettingsRepository settingsRepository,
+                              UserRepository userRepository) {
         this.notificationRepository = notificationRepository;
         this.settingsRepository = settingsRepository;
+        this.userRepository = userRepository;
     }
 
     /**
      * Lấy tất cả notifications của user (FR-6.1, FR-6.2, FR-6.3)
      */
     public List<NotificationResponse> getUserNotifications(User user) {
-        List<Notification> notifications = notificationRepository.findByUserOrderByCreatedAtDesc(user);
+        List<Notification> notifications = notificationRepository.findByUserOrderByCreatedAtDescIdDesc(user);
         return notifications.stream()
                 .map(this::mapToNotificationResponse)
                 .collect(Collectors.toList());
@@ -48,7 +55,7 @@ public class NotificationService {
      * Lấy notifications chưa đọc của user
      */
     public List<NotificationResponse> getUnreadNotifications(User user) {
-        List<Notification> notifications = notificationRepository.findByUserAndStatusOrderByCreatedAtDesc(
+        List<Notification> notifications = notificationRepository.findByUserAndStatusOrderByCreatedAtDescIdDesc(
                 user, NotificationStatus.UNREAD);
         return notifications.stream()
                 .map(this::mapToNotificationResponse)
@@ -87,15 +94,27 @@ public class NotificationService {
     }
 
     /**
-     * Đánh dấu tất cả notifications của user là đã đọc
+     * Đánh dấu tất cả notifications của user là đã đọc.
+     * Một câu UPDATE theo tập, không load entity; trả về số notifications đã cập nhật.
      */
     @Transactional
-    public void markAllAsRead(User user) {
-        List<Notification> unreadNotifications = notificationRepository.findByUserAndStatusOrderByCreatedAtDesc(
-                user, NotificationStatus.UNREAD);
-        
-        unreadNotifications.forEach(n -> n.setStatus(NotificationStatus.READ));
-        notificationRepository.saveAll(unreadNotifications);
+    public int markAllAsRead(User user) {
+        return notificationRepository.markAllRead(user.getId());
+    }
+
+    /**
+     * Đánh dấu đã đọc các notifications đến một mốc: thời điểm `upTo`, hoặc createdAt của notification `notificationId`
+     * (client gửi notification mới nhất nó đã hiển thị). Trả về số notifications đã cập nhật.
+     */
+    @Transactional
+    public int markReadUpTo(User user, OffsetDateTime upTo, UUID notificationId) {
+        if (notificationId != null) {
+            return notificationRepository.markReadUpToNotification(user.getId(), notificationId);
+        }
+        if (upTo != null) {
+            return notificationRepository.markReadUpTo(user.getId(), upTo);
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cần truyền mốc thời gian hoặc ID thông báo");
     }
 
     /**
@@ -116,6 +135,28 @@ public class NotificationService {
         return notificationRepository.save(notification);
     }
 
+    /**
+     * Tạo cùng một notification cho nhiều user trong một lần ghi theo lô (dùng cho cảnh báo AQI).
+     * Chỉ dùng tham chiếu tới User theo ID, không load entity User.
+     */
+    @Transactional
+    public int createNotifications(Collection<UUID> userIds, String title, String message,
+                                   NotificationType type, String relatedId) {
+        List<Notification> notifications = new ArrayList<>(userIds.size());
+        for (UUID userId : userIds) {
+            notifications.add(Notification.builder()
+                    .user(userRepository.getReferenceById(userId))
+                    .title(title)
+                    .message(message)
+                    .type(type)
+                    .status(NotificationStatus.UNREAD)
+                    .relatedId(relatedId)
+                    .build());
+        }
+        notificationRepository.saveAll(notifications);
+        return notifications.size();
+    }
+
     /**
      * Lấy hoặc tạo notification settings cho user
      */
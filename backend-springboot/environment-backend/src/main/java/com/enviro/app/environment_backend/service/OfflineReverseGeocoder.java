@@ -0,0 +1,238 @@
+package com.enviro.app.environment_backend.service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Reverse geocoding cục bộ: tọa độ -> tên tỉnh/quận, không cần gọi mạng.
+ * Ranh giới hành chính được nạp từ file GeoJSON (Polygon/MultiPolygon) và đánh chỉ mục
+ * bằng một lưới đều (bucket), mỗi truy vấn chỉ kiểm tra point-in-polygon với vài ứng viên.
+ * Mặc định tắt: chỉ bật khi `aqi.reverse-geocoding.boundaries` trỏ tới một bộ ranh giới tỉnh/huyện đầy đủ,
+ * vì ranh giới thô sẽ trả về sai tỉnh cho các điểm gần biên.
+ */
+@Component
+public class OfflineReverseGeocoder {
+
+    // Kích thước một bucket của chỉ mục không gian (độ)
+    private static final double BUCKET_SIZE = 0.25;
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+
+    private final String boundariesLocation;
+    private final boolean enabled;
+
+    private final Map<Long, List<Boundary>> index = new HashMap<>();
+    private int boundaryCount;
+
+    public OfflineReverseGeocoder(ResourceLoader resourceLoader, ObjectMapper objectMapper,
+                                  @Value("${aqi.reverse-geocoding.boundaries:}") String boundariesLocation,
+                                  @Value("${aqi.reverse-geocoding.offline-enabled:false}") boolean enabled) {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+        this.boundariesLocation = boundariesLocation;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        if (boundariesLocation == null || boundariesLocation.isBlank()) {
+            System.err.println("Reverse geocoding offline được bật nhưng chưa cấu hình aqi.reverse-geocoding.boundaries.");
+            return;
+        }
+        Resource resource = resourceLoader.getResource(boundariesLocation);
+        if (!resource.exists()) {
+            System.err.println("Không tìm thấy file ranh giới hành chính: " + boundariesLocation);
+            return;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            JsonNode root = objectMapper.readTree(in);
+            for (JsonNode feature : root.path("features")) {
+                Boundary boundary = parseFeature(feature);
+                if (boundary != null) {
+                    addToIndex(boundary);
+                    boundaryCount++;
+                }
+            }
+            System.out.println("Đã nạp " + boundaryCount + " ranh giới hành chính cho reverse geocoding offline.");
+        } catch (Exception e) {
+            System.err.println("Lỗi đọc file ranh giới hành chính '" + boundariesLocation + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tìm tên đơn vị hành chính chứa điểm (lat, lon).
+     * Ưu tiên cấp chi tiết hơn (quận/huyện trước tỉnh), trả về null nếu không có dữ liệu.
+     */
+    public String findName(double lat, double lon) {
+        if (!enabled) {
+            return null;
+        }
+        List<Boundary> candidates = index.get(bucketKey(bucketOf(lat), bucketOf(lon)));
+        if (candidates == null) {
+            return null;
+        }
+
+        Boundary best = null;
+        for (Boundary boundary : candidates) {
+            if (!boundary.contains(lat, lon)) {
+                continue;
+            }
+            if (best == null
+                    || boundary.rank > best.rank
+                    || (boundary.rank == best.rank && boundary.bboxArea() < best.bboxArea())) {
+                best = boundary;
+            }
+        }
+        return best != null ? best.name : null;
+    }
+
+    private void addToIndex(Boundary boundary) {
+        int minLatBucket = bucketOf(boundary.minLat);
+        int maxLatBucket = bucketOf(boundary.maxLat);
+        int minLonBucket = bucketOf(boundary.minLon);
+        int maxLonBucket = bucketOf(boundary.maxLon);
+        for (int latBucket = minLatBucket; latBucket <= maxLatBucket; latBucket++) {
+            for (int lonBucket = minLonBucket; lonBucket <= maxLonBucket; lonBucket++) {
+                index.computeIfAbsent(bucketKey(latBucket, lonBucket), k -> new ArrayList<>()).add(boundary);
+            }
+        }
+    }
+
+    private static int bucketOf(double degrees) {
+        return (int) Math.floor(degrees / BUCKET_SIZE);
+    }
+
+    private static long bucketKey(int latBucket, int lonBucket) {
+        return ((long) latBucket << 32) | (lonBucket & 0xffffffffL);
+    }
+
+    private Boundary parseFeature(JsonNode feature) {
+        JsonNode properties = feature.path("properties");
+        String name = properties.path("name").asText(null);
+        JsonNode geometry = feature.path("geometry");
+        if (name == null || geometry.isMissingNode()) {
+            return null;
+        }
+
+        // Mỗi polygon là danh sách ring: ring đầu là biên ngoài, các ring sau là lỗ
+        List<double[][]> polygons = new ArrayList<>();
+        String type = geometry.path("type").asText();
+        if ("Polygon".equals(type)) {
+            addPolygon(polygons, geometry.path("coordinates"));
+        } else if ("MultiPolygon".equals(type)) {
+            for (JsonNode polygon : geometry.path("coordinates")) {
+                addPolygon(polygons, polygon);
+            }
+        } else {
+            return null;
+        }
+        if (polygons.isEmpty()) {
+            return null;
+        }
+
+        int rank = "district".equals(properties.path("level").asText()) ? 1 : 0;
+        return new Boundary(name, rank, polygons);
+    }
+
+    /**
+     * Mỗi ring được lưu dưới dạng mảng phẳng {lon0, lat0, lon1, lat1, ...}, phần tử 0 là biên ngoài
+     */
+    private void addPolygon(List<double[][]> polygons, JsonNode rings) {
+        if (rings.size() == 0) {
+            return;
+        }
+        double[][] polygon = new double[rings.size()][];
+        for (int r = 0; r < rings.size(); r++) {
+            JsonNode ring = rings.get(r);
+            double[] flat = new double[ring.size() * 2];
+            for (int i = 0; i < ring.size(); i++) {
+                flat[2 * i] = ring.get(i).get(0).asDouble();
+                flat[2 * i + 1] = ring.get(i).get(1).asDouble();
+            }
+            polygon[r] = flat;
+        }
+        polygons.add(polygon);
+    }
+
+    private static final class Boundary {
+        private final String name;
+        private final int rank;
+        private final List<double[][]> polygons;
+        private double minLat = Double.MAX_VALUE;
+        private double maxLat = -Double.MAX_VALUE;
+        private double minLon = Double.MAX_VALUE;
+        private double maxLon = -Double.MAX_VALUE;
+
+        private Boundary(String name, int rank, List<double[][]> polygons) {
+            this.name = name;
+            this.rank = rank;
+            this.polygons = polygons;
+            for (double[][] polygon : polygons) {
+                double[] outer = polygon[0];
+                for (int i = 0; i < outer.length; i += 2) {
+                    minLon = Math.min(minLon, outer[i]);
+                    maxLon = Math.max(maxLon, outer[i]);
+                    minLat = Math.min(minLat, outer[i + 1]);
+                    maxLat = Math.max(maxLat, outer[i + 1]);
+                }
+            }
+        }
+
+        private double bboxArea() {
+            return (maxLat - minLat) * (maxLon - minLon);
+        }
+
+        private boolean contains(double lat, double lon) {
+            if (lat < minLat || lat > maxLat || lon < minLon || lon > maxLon) {
+                return false;
+            }
+            for (double[][] polygon : polygons) {
+                if (insideRing(polygon[0], lat, lon)) {
+                    boolean inHole = false;
+                    for (int h = 1; h < polygon.length; h++) {
+                        if (insideRing(polygon[h], lat, lon)) {
+                            inHole = true;
+                            break;
+                        }
+                    }
+                    if (!inHole) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        // Thuật toán ray casting (even-odd)
+        private static boolean insideRing(double[] ring, double lat, double lon) {
+            boolean inside = false;
+            int n = ring.length / 2;
+            for (int i = 0, j = n - 1; i < n; j = i++) {
+                double xi = ring[2 * i], yi = ring[2 * i + 1];
+                double xj = ring[2 * j], yj = ring[2 * j + 1];
+                if ((yi > lat) != (yj > lat)
+                        && lon < (xj - xi) * (lat - yi) / (yj - yi) + xi) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+    }
+}
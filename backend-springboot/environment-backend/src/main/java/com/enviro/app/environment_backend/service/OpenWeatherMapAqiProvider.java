@@ -0,0 +1,96 @@
+package com.enviro.app.environment_backend.service;
+
+import java.net.URI;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.enviro.app.environment_backend.dto.AqiDataPoint;
+import com.enviro.app.environment_backend.dto.GeocodingResponse;
+import com.enviro.app.environment_backend.dto.OpenWeatherMapResponse;
+
+/**
+ * AqiProvider gọi OpenWeatherMap (Air Pollution + Geocoding API). Dùng mặc định,
+ * trừ khi bật profile "local-aqi".
+ */
+@Component
+@Profile("!local-aqi")
+public class OpenWeatherMapAqiProvider implements AqiProvider {
+
+    @Value("${aqi.api.key}")
+    private String apiKey;
+
+    @Value("${aqi.api.base-url}")
+    private String baseUrl;
+
+    @Value("${aqi.api.geocoding-url}")
+    private String geocodingUrl;
+
+    @Value("${aqi.api.forecast-url:https://api.openweathermap.org/data/2.5/air_pollution/forecast}")
+    private String forecastUrl;
+
+    @Value("${aqi.api.direct-geocoding-url:http://api.openweathermap.org/geo/1.0/direct}")
+    private String directGeocodingUrl;
+
+    private final RestTemplate restTemplate;
+
+    public OpenWeatherMapAqiProvider(@Qualifier("aqiRestTemplate") RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    @Override
+    public AqiDataPoint fetchCurrent(double lat, double lon) {
+        String url = String.format("%s?lat=%s&lon=%s&appid=%s", baseUrl, lat, lon, apiKey);
+        OpenWeatherMapResponse response = restTemplate.getForObject(url, OpenWeatherMapResponse.class);
+
+        if (response != null && response.getList() != null && !response.getList().isEmpty()) {
+            return response.getList().get(0);
+        }
+        return null;
+    }
+
+    @Override
+    public List<AqiDataPoint> fetchForecast(double lat, double lon) {
+        String url = String.format("%s?lat=%s&lon=%s&appid=%s", forecastUrl, lat, lon, apiKey);
+        OpenWeatherMapResponse response = restTemplate.getForObject(url, OpenWeatherMapResponse.class);
+        return response != null ? response.getList() : null;
+    }
+
+    @Override
+    public GeocodingResponse geocode(String address) {
+        URI uri = UriComponentsBuilder.fromHttpUrl(directGeocodingUrl)
+                .queryParam("q", address)
+                .queryParam("limit", 1)
+                .queryParam("appid", apiKey)
+                .build()
+                .toUri();
+
+        GeocodingResponse[] responses = restTemplate.getForObject(uri, GeocodingResponse[].class);
+        if (responses != null && responses.length > 0) {
+            return responses[0];
+        }
+        return null;
+    }
+
+    @Override
+    public String reverseGeocode(double lat, double lon) {
+        URI uri = UriComponentsBuilder.fromUriString(geocodingUrl)
+                .queryParam("lat", lat)
+                .queryParam("lon", lon)
+                .queryParam("limit", 1)
+                .queryParam("appid", apiKey)
+                .build()
+                .toUri();
+
+        GeocodingResponse[] responses = restTemplate.getForObject(uri, GeocodingResponse[].class);
+        if (responses != null && responses.length > 0) {
+            return responses[0].getName();
+        }
+        return null;
+    }
+}
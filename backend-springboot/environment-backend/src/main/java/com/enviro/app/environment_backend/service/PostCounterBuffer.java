@@ -0,0 +1,153 @@
+package com.enviro.app.environment_backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Bộ đệm ghi sau (write-behind) cho posts.likes_count / posts.comments_count.
+ * Mỗi like/comment chỉ cộng vào LongAdder của post trong bộ nhớ (không khóa hàng trong DB),
+ * các thay đổi được gộp và ghi xuống bằng một lô UPDATE mỗi vài trăm mili giây.
+ * Job đối soát định kỳ tính lại bộ đếm từ bảng likes/comments để sửa sai lệch (nếu có); job này cũng chạy
+ * một lần khi khởi động (trước khi nạp trending) để điền các cột vừa được thêm vào DB cũ với giá trị 0.
+ */
+@Component
+public class PostCounterBuffer {
+
+    private static final String FLUSH_SQL =
+            "UPDATE posts SET likes_count = likes_count + ?, comments_count = comments_count + ? WHERE id = ?";
+
+    // Chỉ sửa các post đang lệch; post còn thay đổi chưa ghi trong bộ đệm được bỏ qua ở lần này
+    private static final String RECONCILE_SQL =
+            "UPDATE posts p SET " +
+            "likes_count = (SELECT COUNT(*) FROM likes l WHERE l.post_id = p.id), " +
+            "comments_count = (SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id) " +
+            "WHERE (p.likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.post_id = p.id) " +
+            "OR p.comments_count <> (SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id)) " +
+            "AND NOT (p.id = ANY (?))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<UUID, Delta> pending = new ConcurrentHashMap<>();
+
+    public PostCounterBuffer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Ghi nhận thay đổi bộ đếm của post; nếu đang trong transaction thì chỉ áp dụng sau khi commit
+     */
+    public void record(UUID postId, long likesDelta, long commentsDelta) {
+        AfterCommit.run(() -> add(postId, likesDelta, commentsDelta));
+    }
+
+    /**
+     * Số likes chưa được ghi xuống DB của post (để response ngay sau khi like phản ánh đúng)
+     */
+    public long pendingLikes(UUID postId) {
+        Delta delta = pending.get(postId);
+        return delta != null ? delta.likes.sum() : 0;
+    }
+
+    public long pendingComments(UUID postId) {
+        Delta delta = pending.get(postId);
+        return delta != null ? delta.comments.sum() : 0;
+    }
+
+    /**
+     * Gộp các thay đổi trong bộ đệm thành một lô UPDATE
+     */
+    @Scheduled(fixedDelayString = "${posts.counters.flush-interval-ms:300}")
+    public void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        pending.forEach((postId, delta) -> {
+            long likes = delta.likes.sumThenReset();
+            long comments = delta.comments.sumThenReset();
+            if (likes != 0 || comments != 0) {
+                batch.add(new Object[] { likes, comments, postId });
+            } else {
+                // Post không còn hoạt động: bỏ khỏi bộ đệm (thay đổi chen vào đúng lúc này do job đối soát sửa)
+                pending.remove(postId, delta);
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            // Cả lô trong một transaction: thất bại thì không dòng nào được ghi, cộng trả lại toàn bộ là đúng
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(FLUSH_SQL, batch));
+        } catch (RuntimeException e) {
+            for (Object[] row : batch) {
+                add((UUID) row[2], (long) row[0], (long) row[1]);
+            }
+            System.err.println("Không thể ghi bộ đếm bài viết, sẽ thử lại ở lần flush sau: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Đối soát bộ đếm với bảng likes/comments
+     */
+    @Scheduled(cron = "${posts.counters.reconcile-cron:0 */15 * * * *}")
+    public void reconcile() {
+        flush();
+        UUID[] active = pending.keySet().toArray(new UUID[0]);
+        int repaired = jdbcTemplate.update(con -> {
+            var statement = con.prepareStatement(RECONCILE_SQL);
+            statement.setArray(1, con.createArrayOf("uuid", active));
+            return statement;
+        });
+        if (repaired > 0) {
+            System.out.println("Post counters: đã đối soát lại " + repaired + " bài viết.");
+        }
+    }
+
+    /**
+     * Đối soát một lần khi khởi động, trước TrendingPostRanker.restore (khởi tạo trending dùng các bộ đếm này)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void reconcileOnStartup() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            System.err.println("Không thể đối soát bộ đếm bài viết khi khởi động: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void add(UUID postId, long likesDelta, long commentsDelta) {
+        Delta delta = pending.computeIfAbsent(postId, id -> new Delta());
+        if (likesDelta != 0) {
+            delta.likes.add(likesDelta);
+        }
+        if (commentsDelta != 0) {
+            delta.comments.add(commentsDelta);
+        }
+    }
+
+    private static final class Delta {
+        private final LongAdder likes = new LongAdder();
+        private final LongAdder comments = new LongAdder();
+    }
+}
@@ -2,23 +2,34 @@ package com.enviro.app.environment_backend.service;
 
 import com.enviro.app.environment_backend.dto.CommentRequest;
 import com.enviro.app.environment_backend.dto.CommentResponse;
+import com.enviro.app.environment_backend.dto.CursorPageResponse;
 import com.enviro.app.environment_backend.dto.PostRequest;
 import com.enviro.app.environment_backend.dto.PostResponse;
 import com.enviro.app.environment_backend.model.Comment;
-import com.enviro.app.environment_backend.model.Like;
+import com.enviro.app.environment_backend.model.CommunityGroup;
 import com.enviro.app.environment_backend.model.Post;
 import com.enviro.app.environment_backend.model.User;
 import com.enviro.app.environment_backend.repository.CommentRepository;
+import com.enviro.app.environment_backend.repository.CommunityGroupRepository;
+import com.enviro.app.environment_backend.repository.GroupMemberRepository;
 import com.enviro.app.environment_backend.repository.LikeRepository;
 import com.enviro.app.environment_backend.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -27,16 +38,52 @@ import java.util.stream.Collectors;
 @Service
 public class PostService {
 
+    // Số vòng insert/delete tối đa khi lượt like tranh chấp với request đồng thời của cùng user
+    private static final int LIKE_TOGGLE_ATTEMPTS = 5;
+
     private final PostRepository postRepository;
     private final CommentRepository commentRepository;
     private final LikeRepository likeRepository;
+    private final PostCounterBuffer counterBuffer;
+    private final TrendingPostRanker trendingRanker;
+    private final GroupTimelineStore timelineStore;
+    private final FeedPageCache feedPageCache;
+    private final LikedPostIndex likedPostIndex;
+    private final CommunityGroupRepository groupRepository;
+    private final GroupMemberRepository memberRepository;
+
+    @Value("${posts.feed.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${posts.feed.max-page-size:50}")
+    private int maxPageSize;
+
+    @Value("${posts.comments.default-page-size:20}")
+    private int commentsDefaultPageSize;
+
+    @Value("${posts.comments.max-page-size:100}")
+    private int commentsMaxPageSize;
 
     public PostService(PostRepository postRepository, 
                       CommentRepository commentRepository,
-                      LikeRepository likeRepository) {
+                      LikeRepository likeRepository,
+                      PostCounterBuffer counterBuffer,
+                      TrendingPostRanker trendingRanker,
+                      GroupTimelineStore timelineStore,
+                      FeedPageCache feedPageCache,
+                      LikedPostIndex likedPostIndex,
+                      CommunityGroupRepository groupRepository,
+                      GroupMemberRepository memberRepository) {
         this.postRepository = postRepository;
         this.commentRepository = commentRepository;
         this.likeRepository = likeRepository;
+        this.counterBuffer = counterBuffer;
+        this.trendingRanker = trendingRanker;
+        this.timelineStore = timelineStore;
+        this.feedPageCache = feedPageCache;
+        this.likedPostIndex = likedPostIndex;
+        this.groupRepository = groupRepository;
+        this.memberRepository = memberRepository;
     }
 
     /**
@@ -44,41 +91,144 @@ public class PostService {
      */
     @Transactional
     public PostResponse createPost(User user, PostRequest request) {
+        CommunityGroup group = null;
+        if (request.getGroupId() != null) {
+            group = groupRepository.findById(request.getGroupId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy nhóm"));
+            if (!memberRepository.existsByUserIdAndGroupId(user.getId(), group.getId())) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bạn chưa tham gia nhóm này");
+            }
+        }
+
         Post newPost = Post.builder()
                 .user(user)
                 .content(request.getContent())
+                .group(group)
                 .build();
 
-        Post savedPost = postRepository.save(newPost);
+        // Flush ngay để có createdAt (@CreationTimestamp) cho trending/timeline và response
+        Post savedPost = postRepository.saveAndFlush(newPost);
+        if (group == null) {
+            trendingRanker.onPostCreated(savedPost.getId(), savedPost.getCreatedAt());
+            feedPageCache.invalidateFirstPages();
+        } else {
+            int memberCount = group.getMemberCount() != null ? group.getMemberCount() : 0;
+            timelineStore.onGroupPost(group.getId(), memberCount, savedPost.getId(), savedPost.getCreatedAt());
+        }
         return mapToPostResponse(savedPost, user, false);
     }
 
     /**
-     * Lấy tất cả posts (FR-8.1.1)
+     * Lấy feed bài viết theo trang, mới nhất trước (FR-8.1.1).
+     * Phân trang theo con trỏ (createdAt, id) nên chi phí mỗi trang không phụ thuộc tổng số bài viết.
+     * Trang được dựng một lần cho mọi user (FeedPageCache), cờ "đã like" được ghép theo user từ LikedPostIndex.
      */
-    public List<PostResponse> getAllPosts(User currentUser) {
-        List<Post> posts = postRepository.findAllByOrderByCreatedAtDesc();
-        
-        return posts.stream()
-                .map(post -> {
-                    boolean isLiked = likeRepository.existsByUserAndPost(currentUser, post);
-                    return mapToPostResponse(post, currentUser, isLiked);
-                })
+    public CursorPageResponse<PostResponse> getFeed(User currentUser, String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        CursorPageResponse<PostResponse> shared = feedPageCache.get(cursor, pageSize, () -> loadSharedFeedPage(after, pageSize));
+        Set<UUID> liked = likedPostIndex.likedAmong(currentUser.getId(), shared.getItems());
+        if (liked.isEmpty()) {
+            return shared;
+        }
+
+        List<PostResponse> items = shared.getItems().stream()
+                .map(post -> liked.contains(post.getId()) ? post.toBuilder().isLikedByCurrentUser(true).build() : post)
                 .collect(Collectors.toList());
+        return CursorPageResponse.<PostResponse>builder()
+                .items(items)
+                .nextCursor(shared.getNextCursor())
+                .hasMore(shared.isHasMore())
+                .build();
+    }
+
+    /**
+     * Trang feed chung không gắn với user nào (cờ "đã like" luôn false)
+     */
+    private CursorPageResponse<PostResponse> loadSharedFeedPage(KeysetCursor after, int pageSize) {
+        // Lấy dư một phần tử để biết còn trang sau hay không
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+        List<PostRepository.FeedRow> rows = after == null
+                ? postRepository.findFeedFirstPage(null, pageable)
+                : postRepository.findFeedPageAfter(null, after.getCreatedAt(), after.getId(), pageable);
+
+        return toCursorPage(rows, pageSize, this::mapToPostResponse,
+                PostRepository.FeedRow::getCreatedAt, PostRepository.FeedRow::getId);
+    }
+
+    /**
+     * Timeline các nhóm cộng đồng user đã tham gia, mới nhất trước.
+     * Thứ tự bài viết lấy từ timeline đã materialize trong bộ nhớ, chỉ một truy vấn theo ID cho dữ liệu hiển thị.
+     */
+    public CursorPageResponse<PostResponse> getGroupTimeline(User currentUser, String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        List<KeysetCursor> keys = timelineStore.page(currentUser.getId(), after, pageSize + 1);
+        List<PostRepository.FeedRow> rows = findRowsInOrder(keys.stream().map(KeysetCursor::getId).toList(), currentUser);
+
+        return toCursorPage(rows, pageSize, this::mapToPostResponse,
+                PostRepository.FeedRow::getCreatedAt, PostRepository.FeedRow::getId);
+    }
+
+    /**
+     * Lấy các bài viết trending: top K theo điểm tương tác giảm dần theo thời gian.
+     * Thứ tự lấy từ bảng xếp hạng trong bộ nhớ, chỉ một truy vấn theo ID cho dữ liệu hiển thị.
+     */
+    public List<PostResponse> getTrending(User currentUser, Integer limit) {
+        int size = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        List<UUID> ids = trendingRanker.top(size);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, PostRepository.FeedRow> rows = postRepository.findFeedRowsByIds(ids, currentUser.getId()).stream()
+                .collect(Collectors.toMap(PostRepository.FeedRow::getId, Function.identity()));
+
+        List<PostResponse> items = new ArrayList<>(rows.size());
+        for (UUID id : ids) {
+            PostRepository.FeedRow row = rows.get(id);
+            if (row == null || row.getGroupId() != null) {
+                // Post đã bị xóa, hoặc thuộc nhóm (không lên trending chung)
+                trendingRanker.remove(id);
+                continue;
+            }
+            items.add(mapToPostResponse(row));
+        }
+        return items;
+    }
+
+    /**
+     * Các dòng feed theo danh sách ID, giữ nguyên thứ tự danh sách (bỏ qua post đã bị xóa)
+     */
+    private List<PostRepository.FeedRow> findRowsInOrder(List<UUID> ids, User currentUser) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, PostRepository.FeedRow> rows = postRepository.findFeedRowsByIds(ids, currentUser.getId()).stream()
+                .collect(Collectors.toMap(PostRepository.FeedRow::getId, Function.identity()));
+        List<PostRepository.FeedRow> ordered = new ArrayList<>(rows.size());
+        for (UUID id : ids) {
+            PostRepository.FeedRow row = rows.get(id);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered;
     }
 
     /**
      * Lấy post theo ID (FR-8.1.1)
      */
     public PostResponse getPostById(UUID postId, User currentUser) {
-        Post post = postRepository.findById(postId)
+        PostRepository.FeedRow row = postRepository.findFeedRowById(postId, currentUser.getId())
                 .orElseThrow(() -> new ResponseStatusException(
                     HttpStatus.NOT_FOUND, 
                     "Không tìm thấy bài viết với ID: " + postId
                 ));
-        
-        boolean isLiked = likeRepository.existsByUserAndPost(currentUser, post);
-        return mapToPostResponse(post, currentUser, isLiked);
+        requireGroupMember(row.getGroupId(), currentUser);
+        return mapToPostResponse(row);
     }
 
     /**
@@ -86,29 +236,43 @@ public class PostService {
      */
     @Transactional
     public PostResponse toggleLike(UUID postId, User user) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new ResponseStatusException(
-                    HttpStatus.NOT_FOUND, 
-                    "Không tìm thấy bài viết với ID: " + postId
-                ));
-
-        Optional<Like> existingLike = likeRepository.findByUserAndPost(user, post);
+        UUID groupId = requireReadable(postId, user);
+        boolean liked = toggleLikeRow(postId, user.getId());
+        counterBuffer.record(postId, liked ? 1 : -1, 0);
+        feedPageCache.invalidatePost(postId);
+        likedPostIndex.onLikeToggled(user.getId(), postId, liked);
 
-        if (existingLike.isPresent()) {
-            // Unlike - xóa like
-            likeRepository.delete(existingLike.get());
-        } else {
-            // Like - tạo like mới
-            Like newLike = Like.builder()
-                    .user(user)
-                    .post(post)
-                    .build();
-            likeRepository.save(newLike);
+        PostRepository.FeedRow row = postRepository.findFeedRowById(postId, user.getId())
+                .orElseThrow(() -> postNotFound(postId));
+        if (groupId == null) {
+            trendingRanker.onLikeToggled(postId, liked, row.getCreatedAt());
         }
+        // Bộ đếm của chính lượt này chỉ vào bộ đệm sau khi commit nên được cộng trực tiếp
+        return mapToPostResponse(row, liked ? 1 : -1);
+    }
 
-        // Trả về post đã cập nhật
-        boolean isLiked = likeRepository.existsByUserAndPost(user, post);
-        return mapToPostResponse(post, user, isLiked);
+    /**
+     * Đảo trạng thái like bằng câu lệnh nguyên tử thay vì đọc-rồi-ghi:
+     * INSERT ... ON CONFLICT DO NOTHING, nếu like đã có thì DELETE.
+     * Mỗi lượt chỉ kết thúc khi chính nó đã thêm hoặc xóa được đúng một dòng, nên các lượt nhấn
+     * đồng thời của cùng user được khóa chính tuần tự hóa và mỗi lượt đảo trạng thái đúng một lần.
+     */
+    private boolean toggleLikeRow(UUID postId, UUID userId) {
+        try {
+            for (int attempt = 0; attempt < LIKE_TOGGLE_ATTEMPTS; attempt++) {
+                if (likeRepository.insertIfAbsent(userId, postId) == 1) {
+                    return true;
+                }
+                if (likeRepository.deleteByIds(userId, postId) == 1) {
+                    return false;
+                }
+                // Dòng like vừa bị một request đồng thời xóa/thêm (chưa commit): thử lại
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Vi phạm khóa ngoại post_id: post không tồn tại
+            throw postNotFound(postId);
+        }
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "Bài viết đang được cập nhật, vui lòng thử lại");
     }
 
     /**
@@ -121,6 +285,8 @@ public class PostService {
                     HttpStatus.NOT_FOUND, 
                     "Không tìm thấy bài viết với ID: " + postId
                 ));
+        UUID groupId = post.getGroup() != null ? post.getGroup().getId() : null;
+        requireGroupMember(groupId, user);
 
         Comment newComment = Comment.builder()
                 .post(post)
@@ -129,32 +295,71 @@ public class PostService {
                 .build();
 
         Comment savedComment = commentRepository.save(newComment);
+        counterBuffer.record(postId, 0, 1);
+        if (groupId == null) {
+            trendingRanker.onCommentAdded(postId);
+        }
+        feedPageCache.invalidatePost(postId);
         return mapToCommentResponse(savedComment);
     }
 
     /**
-     * Lấy tất cả comments của một post (FR-8.1.2)
+     * Lấy comments của một post theo trang, mới nhất trước (FR-8.1.2).
+     * Tác giả được lấy cùng câu truy vấn, không load entity Comment/User.
      */
-    public List<CommentResponse> getPostComments(UUID postId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new ResponseStatusException(
-                    HttpStatus.NOT_FOUND, 
-                    "Không tìm thấy bài viết với ID: " + postId
-                ));
+    public CursorPageResponse<CommentResponse> getPostComments(UUID postId, User currentUser, String cursor, Integer limit) {
+        requireReadable(postId, currentUser);
+        int pageSize = limit == null ? commentsDefaultPageSize : Math.max(1, Math.min(limit, commentsMaxPageSize));
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+        List<CommentRepository.CommentRow> rows = after == null
+                ? commentRepository.findPageFirst(postId, pageable)
+                : commentRepository.findPageAfter(postId, after.getCreatedAt(), after.getId(), pageable);
+
+        return toCursorPage(rows, pageSize, this::mapToCommentResponse,
+                CommentRepository.CommentRow::getCreatedAt, CommentRepository.CommentRow::getId);
+    }
+
+    /**
+     * Số comments của một post: cột phi chuẩn hóa + phần chưa ghi xuống của bộ đệm
+     */
+    public long getCommentCount(UUID postId, User currentUser) {
+        requireReadable(postId, currentUser);
+        long stored = postRepository.findCommentsCountById(postId)
+                .orElseThrow(() -> postNotFound(postId));
+        return stored + counterBuffer.pendingComments(postId);
+    }
+
+    /**
+     * Cắt danh sách đã lấy dư một phần tử thành một trang và tạo con trỏ trang sau từ phần tử cuối
+     */
+    private <R, T> CursorPageResponse<T> toCursorPage(List<R> rows, int pageSize, Function<R, T> mapper,
+                                                      Function<R, OffsetDateTime> createdAtOf, Function<R, UUID> idOf) {
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
 
-        List<Comment> comments = commentRepository.findByPostOrderByCreatedAtDesc(post);
-        
-        return comments.stream()
-                .map(this::mapToCommentResponse)
+        List<T> items = rows.stream()
+                .map(mapper)
                 .collect(Collectors.toList());
+
+        R last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+        return CursorPageResponse.<T>builder()
+                .items(items)
+                .nextCursor(hasMore ? KeysetCursor.encode(createdAtOf.apply(last), idOf.apply(last)) : null)
+                .hasMore(hasMore)
+                .build();
     }
 
     /**
      * Map Post entity sang PostResponse DTO
      */
     private PostResponse mapToPostResponse(Post post, User currentUser, boolean isLiked) {
-        long likesCount = likeRepository.countByPost(post);
-        long commentsCount = commentRepository.findByPostOrderByCreatedAtDesc(post).size();
+        // Bộ đếm trong DB + phần chưa ghi xuống của bộ đệm
+        long likesCount = post.getLikesCount() + counterBuffer.pendingLikes(post.getId());
+        long commentsCount = post.getCommentsCount() + counterBuffer.pendingComments(post.getId());
 
         return PostResponse.builder()
                 .id(post.getId())
@@ -162,6 +367,7 @@ public class PostService {
                 .userId(post.getUser().getId())
                 .userFullName(post.getUser().getFullName())
                 .userAvatarUrl(post.getUser().getAvatarUrl())
+                .groupId(post.getGroup() != null ? post.getGroup().getId() : null)
                 .likesCount(likesCount)
                 .commentsCount(commentsCount)
                 .isLikedByCurrentUser(isLiked)
@@ -171,6 +377,74 @@ public class PostService {
                 .build();
     }
 
+    /**
+     * Map dòng dữ liệu feed (projection) sang PostResponse DTO
+     */
+    private PostResponse mapToPostResponse(PostRepository.FeedRow row) {
+        return mapToPostResponse(row, 0);
+    }
+
+    /**
+     * Như trên, cộng thêm thay đổi likes của request hiện tại (chưa commit nên chưa có trong bộ đệm)
+     */
+    private PostResponse mapToPostResponse(PostRepository.FeedRow row, long ownLikesDelta) {
+        return PostResponse.builder()
+                .id(row.getId())
+                .content(row.getContent())
+                .userId(row.getUserId())
+                .userFullName(row.getUserFullName())
+                .userAvatarUrl(row.getUserAvatarUrl())
+                .groupId(row.getGroupId())
+                .likesCount(row.getLikesCount() + counterBuffer.pendingLikes(row.getId()) + ownLikesDelta)
+                .commentsCount(row.getCommentsCount() + counterBuffer.pendingComments(row.getId()))
+                .isLikedByCurrentUser(row.isLikedByCurrentUser())
+                .comments(null)
+                .createdAt(row.getCreatedAt())
+                .updatedAt(row.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * Post phải tồn tại, và nếu thuộc nhóm thì user phải là thành viên nhóm đó. Trả về nhóm của post (null: bài viết chung)
+     */
+    private UUID requireReadable(UUID postId, User user) {
+        PostRepository.PostGroup post = postRepository.findPostGroupById(postId)
+                .orElseThrow(() -> postNotFound(postId));
+        requireGroupMember(post.getGroupId(), user);
+        return post.getGroupId();
+    }
+
+    /**
+     * Bài viết nhóm chỉ thành viên nhóm mới được xem/like/comment (bài viết chung: groupId = null)
+     */
+    private void requireGroupMember(UUID groupId, User user) {
+        if (groupId != null && !memberRepository.existsByUserIdAndGroupId(user.getId(), groupId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bạn chưa tham gia nhóm này");
+        }
+    }
+
+    private ResponseStatusException postNotFound(UUID postId) {
+        return new ResponseStatusException(
+            HttpStatus.NOT_FOUND,
+            "Không tìm thấy bài viết với ID: " + postId
+        );
+    }
+
+    /**
+     * Map dòng dữ liệu comment (projection) sang CommentResponse DTO
+     */
+    private CommentResponse mapToCommentResponse(CommentRepository.CommentRow row) {
+        return CommentResponse.builder()
+                .id(row.getId())
+                .content(row.getContent())
+                .userId(row.getUserId())
+                .userFullName(row.getUserFullName())
+                .userAvatarUrl(row.getUserAvatarUrl())
+                .createdAt(row.getCreatedAt())
+                .updatedAt(row.getUpdatedAt())
+                .build();
+    }
+
     /**
      * Map Comment entity sang CommentResponse DTO
      */
@@ -3,8 +3,12 @@ package com.enviro.app.environment_backend.service;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,13 +26,27 @@ public class SavedLocationService {
     private final SavedLocationRepository locationRepository;
     private final UserRepository userRepository;
     private final AqiService aqiService; 
+    private final GeocodingCacheService geocodingCacheService;
+    private final ExecutorService aqiExecutor;
+    private final AqiAlertEngine aqiAlertEngine;
+
+    // Thời hạn tối đa cho mỗi lời gọi AQI, quá hạn sẽ trả "N/A" thay vì chặn cả response
+    private final long fanoutTimeoutMs;
 
     public SavedLocationService(SavedLocationRepository locationRepository, 
                                 UserRepository userRepository,
-                                AqiService aqiService) {
+                                AqiService aqiService,
+                                GeocodingCacheService geocodingCacheService,
+                                @Qualifier("aqiExecutor") ExecutorService aqiExecutor,
+                                AqiAlertEngine aqiAlertEngine,
+                                @Value("${aqi.fanout.timeout-ms:3000}") long fanoutTimeoutMs) {
         this.locationRepository = locationRepository;
         this.userRepository = userRepository;
         this.aqiService = aqiService; 
+        this.geocodingCacheService = geocodingCacheService;
+        this.aqiExecutor = aqiExecutor;
+        this.aqiAlertEngine = aqiAlertEngine;
+        this.fanoutTimeoutMs = fanoutTimeoutMs;
     }
 
     @Transactional
@@ -39,7 +57,10 @@ public class SavedLocationService {
             .longitude(lon)
             .user(user)
             .build();
-        return locationRepository.save(location);
+        SavedLocation saved = locationRepository.save(location);
+        // Đăng ký nhận cảnh báo AQI cho ô lưới của vị trí mới
+        aqiAlertEngine.reindexUser(user.getId());
+        return saved;
     }
 
     public List<SavedLocation> getLocationsByUser(UUID userId) {
@@ -47,66 +68,125 @@ public class SavedLocationService {
     }
 
     /**
-     * Lấy AQI cho tất cả vị trí đã lưu VÀ vị trí mặc định trong profile
+     * Lấy AQI cho tất cả vị trí đã lưu VÀ vị trí mặc định trong profile.
+     * Các vị trí được tra cứu song song; vị trí nào quá hạn sẽ được trả về với giá trị "N/A".
      */
     public List<SavedLocationAqiResponse> getAqiForAllSavedLocations(UUID userId) {
-        List<SavedLocationAqiResponse> responseList = new ArrayList<>();
-
         // 1. Lấy thông tin User để check default_location
         User user = userRepository.findById(userId).orElse(null);
-        
+
         // --- XỬ LÝ VỊ TRÍ MẶC ĐỊNH (USER PROFILE) ---
+        CompletableFuture<SavedLocationAqiResponse> defaultFuture = null;
         if (user != null && user.getDefaultLocation() != null && !user.getDefaultLocation().isEmpty()) {
             String address = user.getDefaultLocation();
-            // Gọi Geocoding để lấy tọa độ từ tên địa chỉ
-            GeocodingResponse coords = aqiService.getCoordinatesFromAddress(address);
-            
-            if (coords != null) {
-                // Lấy AQI dựa trên tọa độ vừa tìm được
-                AqiResponse aqiData = aqiService.getCurrentAqiByGps(coords.getLat(), coords.getLon());
-                
-                if (aqiData != null) {
-                    responseList.add(SavedLocationAqiResponse.builder()
-                        .locationId(null) // Không có ID vì là mặc định
-                        .locationName(address + " (Mặc định)")
-                        .latitude(coords.getLat())
-                        .longitude(coords.getLon())
-                        .aqiValue(aqiData.getAqiValue())
-                        .status(aqiData.getStatus())
-                        .dominantPollutant(aqiData.getDominantPollutant())
-                        .healthAdvisory(aqiData.getHealthAdvisory())
-                        .timeObservation(aqiData.getTimeObservation())
-                        .resolvedCityName(aqiData.getCity())
-                        .build());
-                }
-            }
+            defaultFuture = BoundedAsync
+                    .supply(() -> getAqiForDefaultLocation(address), aqiExecutor)
+                    .completeOnTimeout(unavailableDefault(address), fanoutTimeoutMs, TimeUnit.MILLISECONDS)
+                    .exceptionally(ex -> unavailableDefault(address));
         }
 
-        // 2. Lấy danh sách từ bảng saved_locations
+        // 2. Lấy danh sách từ bảng saved_locations và gửi tất cả lời gọi AQI cùng lúc
         List<SavedLocation> savedLocations = locationRepository.findByUserId(userId);
-        
-        List<SavedLocationAqiResponse> savedList = savedLocations.stream().map(location -> {
-            AqiResponse aqiData = aqiService.getCurrentAqiByGps(
-                location.getLatitude(), 
-                location.getLongitude()
-            );
-
-            return SavedLocationAqiResponse.builder()
-                .locationId(location.getId())
-                .locationName(location.getName())
-                .latitude(location.getLatitude())
-                .longitude(location.getLongitude())
-                .aqiValue(aqiData != null ? aqiData.getAqiValue() : -1)
-                .status(aqiData != null ? aqiData.getStatus() : "N/A")
-                .dominantPollutant(aqiData != null ? aqiData.getDominantPollutant() : "N/A")
-                .healthAdvisory(aqiData != null ? aqiData.getHealthAdvisory() : "Không thể lấy dữ liệu.")
-                .timeObservation(aqiData != null ? aqiData.getTimeObservation() : "N/A")
-                .resolvedCityName(aqiData != null ? aqiData.getCity() : location.getName())
-                .build();
-        }).collect(Collectors.toList());
-
-        responseList.addAll(savedList);
+
+        List<CompletableFuture<SavedLocationAqiResponse>> savedFutures = new ArrayList<>(savedLocations.size());
+        for (SavedLocation location : savedLocations) {
+            savedFutures.add(BoundedAsync
+                    .supply(() -> toAqiResponse(location), aqiExecutor)
+                    .completeOnTimeout(unavailable(location), fanoutTimeoutMs, TimeUnit.MILLISECONDS)
+                    .exceptionally(ex -> unavailable(location)));
+        }
+
+        List<SavedLocationAqiResponse> responseList = new ArrayList<>(savedLocations.size() + 1);
+        if (defaultFuture != null) {
+            responseList.add(defaultFuture.join());
+        }
+        for (CompletableFuture<SavedLocationAqiResponse> future : savedFutures) {
+            responseList.add(future.join());
+        }
 
         return responseList;
     }
-}
\ No newline at end of file
+
+    private SavedLocationAqiResponse getAqiForDefaultLocation(String address) {
+        // Lấy tọa độ từ cache Geocoding (đã được geocode khi user cập nhật profile)
+        GeocodingResponse coords = geocodingCacheService.getCoordinates(address);
+        if (coords == null) {
+            return unavailableDefault(address);
+        }
+
+        // Lấy AQI dựa trên tọa độ vừa tìm được
+        AqiResponse aqiData = aqiService.getCurrentAqiByGps(coords.getLat(), coords.getLon());
+        if (aqiData == null) {
+            return unavailableDefault(address);
+        }
+
+        return SavedLocationAqiResponse.builder()
+            .locationId(null) // Không có ID vì là mặc định
+            .locationName(defaultLocationName(address))
+            .latitude(coords.getLat())
+            .longitude(coords.getLon())
+            .aqiValue(aqiData.getAqiValue())
+            .status(aqiData.getStatus())
+            .dominantPollutant(aqiData.getDominantPollutant())
+            .healthAdvisory(aqiData.getHealthAdvisory())
+            .timeObservation(aqiData.getTimeObservation())
+            .resolvedCityName(aqiData.getCity())
+            .build();
+    }
+
+    private SavedLocationAqiResponse toAqiResponse(SavedLocation location) {
+        AqiResponse aqiData = aqiService.getCurrentAqiByGps(
+            location.getLatitude(), 
+            location.getLongitude()
+        );
+        if (aqiData == null) {
+            return unavailable(location);
+        }
+
+        return SavedLocationAqiResponse.builder()
+            .locationId(location.getId())
+            .locationName(location.getName())
+            .latitude(location.getLatitude())
+            .longitude(location.getLongitude())
+            .aqiValue(aqiData.getAqiValue())
+            .status(aqiData.getStatus())
+            .dominantPollutant(aqiData.getDominantPollutant())
+            .healthAdvisory(aqiData.getHealthAdvisory())
+            .timeObservation(aqiData.getTimeObservation())
+            .resolvedCityName(aqiData.getCity())
+            .build();
+    }
+
+    /**
+     * Kết quả "N/A" cho vị trí lỗi hoặc quá hạn
+     */
+    private SavedLocationAqiResponse unavailable(SavedLocation location) {
+        return unavailable(location.getId(), location.getName(), location.getLatitude(), location.getLongitude());
+    }
+
+    /**
+     * Kết quả "N/A" cho vị trí mặc định (chưa có tọa độ nếu geocoding chưa xong)
+     */
+    private SavedLocationAqiResponse unavailableDefault(String address) {
+        return unavailable(null, defaultLocationName(address), 0, 0);
+    }
+
+    private SavedLocationAqiResponse unavailable(UUID locationId, String name, double lat, double lon) {
+        return SavedLocationAqiResponse.builder()
+            .locationId(locationId)
+            .locationName(name)
+            .latitude(lat)
+            .longitude(lon)
+            .aqiValue(-1)
+            .status("N/A")
+            .dominantPollutant("N/A")
+            .healthAdvisory("Không thể lấy dữ liệu.")
+            .timeObservation("N/A")
+            .resolvedCityName(name)
+            .build();
+    }
+
+    private static String defaultLocationName(String address) {
+        return address + " (Mặc định)";
+    }
+}
@@ -0,0 +1,282 @@
+package com.enviro.app.environment_backend.service;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Bảng xếp hạng bài viết trending trong bộ nhớ.
+ * Điểm dùng forward decay: mỗi tương tác tại thời điểm t cộng w * e^(λ(t - landmark)),
+ * nên điểm đã lưu không cần giảm dần theo thời gian và thứ tự giữa các post luôn đúng
+ * (bài mới/tương tác mới tự động có trọng số lớn hơn). λ = ln2 / half-life.
+ * Chỉ giữ tối đa `capacity` post điểm cao nhất trong một tập có thứ tự, đọc top K là O(K).
+ * Bảng xếp hạng được checkpoint định kỳ vào post_trending_scores.
+ * Tương tác chỉ được tính sau khi transaction commit; bài viết nhóm không lên trending (nơi gọi tự bỏ qua).
+ */
+@Component
+public class TrendingPostRanker {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO post_trending_scores (post_id, score, landmark) " +
+            "SELECT ?, ?, ? WHERE EXISTS (SELECT 1 FROM posts WHERE id = ?) " +
+            "ON CONFLICT (post_id) DO UPDATE SET score = EXCLUDED.score, landmark = EXCLUDED.landmark";
+
+    private static final String DELETE_STALE_SQL =
+            "DELETE FROM post_trending_scores WHERE NOT (post_id = ANY (?))";
+
+    // Khởi tạo lần đầu (chưa có checkpoint): lấy các bài viết gần đây cùng bộ đếm phi chuẩn hóa
+    private static final String SEED_SQL =
+            "SELECT id, created_at, likes_count, comments_count FROM posts " +
+            "WHERE created_at > ? ORDER BY created_at DESC LIMIT ?";
+
+    // Đổi mốc khi e^(λ(t - landmark)) tăng quá 2^32 để điểm không tràn double
+    private static final int REBASE_AFTER_HALF_LIVES = 32;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(
+            Comparator.comparingDouble((Entry entry) -> entry.score).reversed().thenComparing(entry -> entry.postId));
+
+    // Cập nhật điểm giữ read lock; đổi mốc (nhân lại toàn bộ điểm) giữ write lock
+    private final ReentrantReadWriteLock rebaseLock = new ReentrantReadWriteLock();
+
+    private volatile long landmark = nowSeconds();
+
+    private final double halfLifeHours;
+    private final int capacity;
+    private final double postWeight;
+    private final double likeWeight;
+    private final double commentWeight;
+    private final long seedWindowDays;
+
+    public TrendingPostRanker(JdbcTemplate jdbcTemplate,
+                              @Value("${posts.trending.half-life-hours:6}") double halfLifeHours,
+                              @Value("${posts.trending.capacity:1000}") int capacity,
+                              @Value("${posts.trending.post-weight:3}") double postWeight,
+                              @Value("${posts.trending.like-weight:1}") double likeWeight,
+                              @Value("${posts.trending.comment-weight:2}") double commentWeight,
+                              @Value("${posts.trending.seed-window-days:7}") long seedWindowDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.halfLifeHours = halfLifeHours;
+        this.capacity = capacity;
+        this.postWeight = postWeight;
+        this.likeWeight = likeWeight;
+        this.commentWeight = commentWeight;
+        this.seedWindowDays = seedWindowDays;
+    }
+
+    public void onPostCreated(UUID postId, OffsetDateTime createdAt) {
+        long epochSecond = createdAt.toEpochSecond();
+        AfterCommit.run(() -> add(postId, postWeight, epochSecond));
+    }
+
+    /**
+     * Bỏ like trừ đi phần đóng góp nhỏ nhất mà like đó có thể đã cộng (như thể like lúc đăng bài),
+     * vì không biết lúc like. Trừ theo thời điểm hiện tại sẽ trừ quá tay với like cũ
+     * (gấp 16 lần sau 24 giờ với half-life 6 giờ) và có thể đẩy bài khỏi bảng xếp hạng.
+     */
+    public void onLikeToggled(UUID postId, boolean liked, OffsetDateTime postCreatedAt) {
+        long epochSecond = liked ? nowSeconds() : postCreatedAt.toEpochSecond();
+        AfterCommit.run(() -> add(postId, liked ? likeWeight : -likeWeight, epochSecond));
+    }
+
+    public void onCommentAdded(UUID postId) {
+        long epochSecond = nowSeconds();
+        AfterCommit.run(() -> add(postId, commentWeight, epochSecond));
+    }
+
+    /**
+     * Bỏ post khỏi bảng xếp hạng (ví dụ post đã bị xóa)
+     */
+    public void remove(UUID postId) {
+        entries.computeIfPresent(postId, (id, entry) -> {
+            ranking.remove(entry);
+            return null;
+        });
+    }
+
+    /**
+     * ID của tối đa `limit` post điểm cao nhất, theo thứ tự giảm dần
+     */
+    public List<UUID> top(int limit) {
+        List<UUID> ids = new ArrayList<>(Math.min(limit, capacity));
+        for (Entry entry : ranking) {
+            if (ids.size() >= limit) {
+                break;
+            }
+            ids.add(entry.postId);
+        }
+        return ids;
+    }
+
+    /**
+     * Nạp bảng xếp hạng từ checkpoint, hoặc khởi tạo từ các bài viết gần đây.
+     * Chạy sau PostCounterBuffer.reconcileOnStartup để khởi tạo không dùng bộ đếm chưa được điền (0).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void restore() {
+        try {
+            long now = nowSeconds();
+            jdbcTemplate.query("SELECT post_id, score, landmark FROM post_trending_scores", rs -> {
+                UUID postId = rs.getObject("post_id", UUID.class);
+                double score = rs.getDouble("score") * Math.exp(-lambda() * (now - rs.getLong("landmark")));
+                put(postId, score);
+            });
+            landmark = now;
+            if (entries.isEmpty()) {
+                seedFromPosts();
+            }
+            System.out.println("Trending: đã nạp " + entries.size() + " bài viết vào bảng xếp hạng.");
+        } catch (Exception e) {
+            System.err.println("Không thể nạp bảng xếp hạng trending: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi bảng xếp hạng hiện tại xuống DB, đổi mốc tính điểm khi cần
+     */
+    @Scheduled(fixedDelayString = "${posts.trending.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        rebaseIfNeeded();
+
+        long currentLandmark = landmark;
+        List<Object[]> batch = new ArrayList<>();
+        List<UUID> ids = new ArrayList<>();
+        for (Entry entry : ranking) {
+            batch.add(new Object[] { entry.postId, entry.score, currentLandmark, entry.postId });
+            ids.add(entry.postId);
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+        }
+        UUID[] kept = ids.toArray(new UUID[0]);
+        jdbcTemplate.update(con -> {
+            var statement = con.prepareStatement(DELETE_STALE_SQL);
+            statement.setArray(1, con.createArrayOf("uuid", kept));
+            return statement;
+        });
+    }
+
+    @PreDestroy
+    public void checkpointOnShutdown() {
+        checkpoint();
+    }
+
+    private void seedFromPosts() {
+        OffsetDateTime since = OffsetDateTime.now().minusDays(seedWindowDays);
+        jdbcTemplate.query(SEED_SQL, rs -> {
+            UUID postId = rs.getObject("id", UUID.class);
+            long createdAt = rs.getObject("created_at", OffsetDateTime.class).toEpochSecond();
+            // Chưa biết thời điểm của từng tương tác: coi như xảy ra lúc đăng bài
+            double weight = postWeight
+                    + likeWeight * rs.getLong("likes_count")
+                    + commentWeight * rs.getLong("comments_count");
+            add(postId, weight, createdAt);
+        }, since, capacity);
+    }
+
+    private void add(UUID postId, double weight, long epochSecond) {
+        rebaseLock.readLock().lock();
+        try {
+            double delta = weight * Math.exp(lambda() * (epochSecond - landmark));
+            Entry updated = entries.compute(postId, (id, entry) -> {
+                double score = (entry != null ? entry.score : 0) + delta;
+                if (entry != null) {
+                    ranking.remove(entry);
+                }
+                if (score <= 0) {
+                    return null;
+                }
+                Entry next = new Entry(id, score);
+                ranking.add(next);
+                return next;
+            });
+            if (updated != null) {
+                evictOverflow();
+            }
+        } finally {
+            rebaseLock.readLock().unlock();
+        }
+    }
+
+    private void put(UUID postId, double score) {
+        Entry entry = new Entry(postId, score);
+        entries.put(postId, entry);
+        ranking.add(entry);
+        evictOverflow();
+    }
+
+    /**
+     * Bỏ các post điểm thấp nhất khi vượt quá sức chứa
+     */
+    private void evictOverflow() {
+        while (entries.size() > capacity) {
+            Entry lowest = ranking.pollLast();
+            if (lowest == null) {
+                return;
+            }
+            entries.remove(lowest.postId, lowest);
+        }
+    }
+
+    private void rebaseIfNeeded() {
+        long now = nowSeconds();
+        if (lambda() * (now - landmark) < REBASE_AFTER_HALF_LIVES * Math.log(2)) {
+            return;
+        }
+        rebaseLock.writeLock().lock();
+        try {
+            double factor = Math.exp(-lambda() * (now - landmark));
+            List<Entry> rebased = new ArrayList<>(ranking.size());
+            for (Entry entry : ranking) {
+                rebased.add(new Entry(entry.postId, entry.score * factor));
+            }
+            entries.clear();
+            ranking.clear();
+            rebased.forEach(entry -> {
+                entries.put(entry.postId, entry);
+                ranking.add(entry);
+            });
+            landmark = now;
+        } finally {
+            rebaseLock.writeLock().unlock();
+        }
+    }
+
+    private double lambda() {
+        return Math.log(2) / (halfLifeHours * 3600);
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static final class Entry {
+        private final UUID postId;
+        private final double score;
+
+        private Entry(UUID postId, double score) {
+            this.postId = postId;
+            this.score = score;
+        }
+    }
+}
@@ -34,16 +34,22 @@ public class UserService {
     private final SavedLocationRepository savedLocationRepository;
     // THÊM: Repository còn thiếu
     private final NotificationSettingsRepository notificationSettingsRepository;
+    private final GeocodingCacheService geocodingCacheService;
+    private final AqiAlertEngine aqiAlertEngine;
 
     // CẬP NHẬT: Hàm khởi tạo (Constructor)
     public UserService(UserRepository userRepository, 
                       ReportRepository reportRepository,
                       SavedLocationRepository savedLocationRepository,
-                      NotificationSettingsRepository notificationSettingsRepository) { // THÊM
+                      NotificationSettingsRepository notificationSettingsRepository, // THÊM
+                      GeocodingCacheService geocodingCacheService,
+                      AqiAlertEngine aqiAlertEngine) {
         this.userRepository = userRepository;
         this.reportRepository = reportRepository;
         this.savedLocationRepository = savedLocationRepository;
         this.notificationSettingsRepository = notificationSettingsRepository; // THÊM
+        this.geocodingCacheService = geocodingCacheService;
+        this.aqiAlertEngine = aqiAlertEngine;
     }
 
     public Optional<User> findById(UUID id) { // SỬA: Dùng UUID
@@ -71,7 +77,17 @@ public class UserService {
             user.setAvatarUrl(request.getAvatarUrl());
         }
         if (request.getDefaultLocation() != null) {
+            String oldLocation = user.getDefaultLocation();
             user.setDefaultLocation(request.getDefaultLocation());
+            // Geocode khi đổi địa chỉ để dashboard AQI không phải geocode lúc đọc.
+            // Sau khi commit, chuyển sang pool AQI: lời gọi mạng không giữ request/transaction,
+            // và reindex (đọc địa chỉ mới) chạy sau khi tọa độ đã được lưu.
+            if (!GeocodingCacheService.normalize(request.getDefaultLocation())
+                    .equals(GeocodingCacheService.normalize(oldLocation))) {
+                String newLocation = request.getDefaultLocation();
+                AfterCommit.run(() -> geocodingCacheService.resolveInBackground(newLocation,
+                        () -> aqiAlertEngine.reindexUser(userId)));
+            }
         }
         if (request.getGender() != null) {
             user.setGender(request.getGender());
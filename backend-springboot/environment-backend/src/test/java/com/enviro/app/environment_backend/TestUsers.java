@@ -0,0 +1,20 @@
+package com.enviro.app.environment_backend;
+
+import com.enviro.app.environment_backend.model.User;
+
+/**
+ * Dữ liệu user dùng chung cho các test: chỉ điền các cột bắt buộc, email cũng là họ tên
+ */
+public final class TestUsers {
+
+    private TestUsers() {
+    }
+
+    public static User user(String email) {
+        return User.builder()
+                .email(email)
+                .passwordHash("hash")
+                .fullName(email)
+                .build();
+    }
+}
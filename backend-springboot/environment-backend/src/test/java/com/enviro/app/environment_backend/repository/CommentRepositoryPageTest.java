@@ -0,0 +1,94 @@
+package com.enviro.app.environment_backend.repository;
+
+import static com.enviro.app.environment_backend.TestUsers.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import com.enviro.app.environment_backend.model.Comment;
+import com.enviro.app.environment_backend.model.Post;
+import com.enviro.app.environment_backend.model.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class CommentRepositoryPageTest {
+
+    private static final int COMMENTS = 45;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        User author = entityManager.persist(user("author@example.com"));
+        post = entityManager.persist(Post.builder().user(author).content("Bài viết").build());
+        Post other = entityManager.persist(Post.builder().user(author).content("Bài khác").build());
+
+        // Mỗi comment một tác giả riêng để lộ ra N+1 nếu tác giả bị load lười
+        for (int i = 0; i < COMMENTS; i++) {
+            User commenter = entityManager.persist(user("commenter" + i + "@example.com"));
+            entityManager.persist(Comment.builder().post(post).user(commenter).content("Bình luận " + i).build());
+        }
+        entityManager.persist(Comment.builder().post(other).user(author).content("Không thuộc post").build());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void commentPageWithAuthorsIsOneStatement() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<CommentRepository.CommentRow> rows = commentRepository.findPageFirst(post.getId(), PageRequest.of(0, 30));
+        rows.forEach(row -> {
+            row.getUserFullName();
+            row.getUserAvatarUrl();
+        });
+
+        assertThat(rows).hasSize(30);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keysetPagesCoverEveryCommentOnceNewestFirst() {
+        List<CommentRepository.CommentRow> all = new ArrayList<>();
+        List<CommentRepository.CommentRow> page = commentRepository.findPageFirst(post.getId(), PageRequest.of(0, 10));
+        while (!page.isEmpty()) {
+            all.addAll(page);
+            CommentRepository.CommentRow last = page.get(page.size() - 1);
+            page = commentRepository.findPageAfter(post.getId(), last.getCreatedAt(), last.getId(), PageRequest.of(0, 10));
+        }
+
+        Set<UUID> ids = new HashSet<>();
+        all.forEach(row -> ids.add(row.getId()));
+        assertThat(ids).hasSize(COMMENTS);
+        for (int i = 1; i < all.size(); i++) {
+            assertThat(all.get(i - 1).getCreatedAt()).isAfterOrEqualTo(all.get(i).getCreatedAt());
+        }
+    }
+}
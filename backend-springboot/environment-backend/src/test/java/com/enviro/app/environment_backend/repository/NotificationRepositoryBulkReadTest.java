@@ -0,0 +1,134 @@
+package com.enviro.app.environment_backend.repository;
+
+import static com.enviro.app.environment_backend.TestUsers.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import com.enviro.app.environment_backend.model.Notification;
+import com.enviro.app.environment_backend.model.NotificationStatus;
+import com.enviro.app.environment_backend.model.NotificationType;
+import com.enviro.app.environment_backend.model.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class NotificationRepositoryBulkReadTest {
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private User other;
+    private Notification otherNotification;
+
+    @BeforeEach
+    void setUp() {
+        user = entityManager.persist(user("user@example.com"));
+        other = entityManager.persist(user("other@example.com"));
+
+        for (int i = 0; i < 500; i++) {
+            entityManager.persist(notification(user));
+        }
+        otherNotification = entityManager.persist(notification(other));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void markAllReadIsOneStatementRegardlessOfUnreadCount() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        int updated = notificationRepository.markAllRead(user.getId());
+
+        assertThat(updated).isEqualTo(500);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(notificationRepository.countByUserAndStatus(user, NotificationStatus.UNREAD)).isZero();
+        assertThat(notificationRepository.countByUserAndStatus(other, NotificationStatus.UNREAD)).isEqualTo(1);
+
+        // Đã đọc hết: lần gọi lại không cập nhật gì
+        assertThat(notificationRepository.markAllRead(user.getId())).isZero();
+    }
+
+    @Test
+    void markReadUpToStopsAtTheGivenNotification() {
+        List<Notification> ordered = notificationRepository.findByUserOrderByCreatedAtDescIdDesc(user);
+        Notification mark = ordered.get(ordered.size() / 2);
+        // Mốc và mọi notification đứng sau nó trong danh sách
+        long expected = ordered.size() - ordered.size() / 2;
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        int updated = notificationRepository.markReadUpToNotification(user.getId(), mark.getId());
+
+        assertThat(updated).isEqualTo(expected);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(notificationRepository.countByUserAndStatus(user, NotificationStatus.UNREAD)).isEqualTo(500 - expected);
+
+        // Mốc là notification của user khác hoặc không tồn tại: không cập nhật dòng nào
+        assertThat(notificationRepository.markReadUpToNotification(user.getId(), otherNotification.getId())).isZero();
+        assertThat(notificationRepository.markReadUpToNotification(other.getId(), mark.getId())).isZero();
+        assertThat(notificationRepository.markReadUpToNotification(user.getId(), UUID.randomUUID())).isZero();
+    }
+
+    @Test
+    void sameTimestampIsOrderedById() {
+        OffsetDateTime createdAt = OffsetDateTime.now().withNano(0);
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Notification n SET n.createdAt = :createdAt WHERE n.user.id = :userId")
+                .setParameter("createdAt", createdAt)
+                .setParameter("userId", user.getId())
+                .executeUpdate();
+        entityManager.clear();
+        List<Notification> ordered = notificationRepository.findByUserOrderByCreatedAtDescIdDesc(user);
+        Notification mark = ordered.get(10);
+
+        assertThat(notificationRepository.markReadUpToNotification(user.getId(), mark.getId())).isEqualTo(490);
+
+        // Các notification đứng trước mốc trong danh sách vẫn chưa đọc, dù cùng thời điểm
+        assertThat(notificationRepository.findByUserAndStatusOrderByCreatedAtDescIdDesc(user, NotificationStatus.UNREAD))
+                .extracting(Notification::getId)
+                .containsExactlyElementsOf(ordered.subList(0, 10).stream().map(Notification::getId).toList());
+    }
+
+    @Test
+    void markReadUpToTimestamp() {
+        Notification latest = notificationRepository.findByUserOrderByCreatedAtDescIdDesc(user).get(0);
+
+        assertThat(notificationRepository.markReadUpTo(user.getId(), latest.getCreatedAt().minusYears(1))).isZero();
+        assertThat(notificationRepository.markReadUpTo(user.getId(), latest.getCreatedAt())).isEqualTo(500);
+        assertThat(notificationRepository.countByUserAndStatus(other, NotificationStatus.UNREAD)).isEqualTo(1);
+    }
+
+    private Notification notification(User owner) {
+        return Notification.builder()
+                .user(owner)
+                .title("Cảnh báo AQI")
+                .message("Chất lượng không khí kém")
+                .type(NotificationType.values()[0])
+                .status(NotificationStatus.UNREAD)
+                .build();
+    }
+}
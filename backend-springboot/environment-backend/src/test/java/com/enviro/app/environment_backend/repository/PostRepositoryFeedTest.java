@@ -0,0 +1,95 @@
+package com.enviro.app.environment_backend.repository;
+
+import static com.enviro.app.environment_backend.TestUsers.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import com.enviro.app.environment_backend.model.Comment;
+import com.enviro.app.environment_backend.model.Like;
+import com.enviro.app.environment_backend.model.Post;
+import com.enviro.app.environment_backend.model.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class PostRepositoryFeedTest {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User reader;
+
+    @BeforeEach
+    void setUp() {
+        reader = entityManager.persist(user("reader@example.com"));
+        User author = entityManager.persist(user("author@example.com"));
+
+        // Bộ đếm được đặt sẵn như sau khi PostCounterBuffer đã ghi xuống
+        for (int i = 0; i < 60; i++) {
+            Post post = entityManager.persist(Post.builder()
+                    .user(author)
+                    .content("Bài viết " + i)
+                    .likesCount(i % 2 == 0 ? 2 : 0)
+                    .commentsCount(1)
+                    .build());
+            entityManager.persist(Comment.builder().post(post).user(reader).content("Bình luận").build());
+            if (i % 2 == 0) {
+                entityManager.persist(Like.builder().post(post).user(reader).build());
+                entityManager.persist(Like.builder().post(post).user(author).build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void feedPageIsOneStatementRegardlessOfPageSize() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int pageSize : new int[] { 5, 50 }) {
+            statistics.clear();
+
+            List<PostRepository.FeedRow> rows = postRepository.findFeedFirstPage(reader.getId(), PageRequest.of(0, pageSize));
+            rows.forEach(row -> {
+                row.getUserFullName();
+                row.getLikesCount();
+                row.getCommentsCount();
+                row.isLikedByCurrentUser();
+            });
+
+            assertThat(rows).hasSize(pageSize);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void feedRowCarriesCountsAndLikedFlag() {
+        List<PostRepository.FeedRow> rows = postRepository.findFeedFirstPage(reader.getId(), PageRequest.of(0, 60));
+
+        assertThat(rows).allSatisfy(row -> assertThat(row.getCommentsCount()).isEqualTo(1));
+        assertThat(rows).filteredOn(PostRepository.FeedRow::isLikedByCurrentUser)
+                .hasSize(30)
+                .allSatisfy(row -> assertThat(row.getLikesCount()).isEqualTo(2));
+        assertThat(rows).filteredOn(row -> !row.isLikedByCurrentUser())
+                .allSatisfy(row -> assertThat(row.getLikesCount()).isZero());
+    }
+}
@@ -0,0 +1,51 @@
+package com.enviro.app.environment_backend.repository;
+
+import static com.enviro.app.environment_backend.TestUsers.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import com.enviro.app.environment_backend.model.NotificationSettings;
+import com.enviro.app.environment_backend.model.User;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class UserRepositoryAlertLocationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void onlyUsersStillReceivingAqiAlertsAreIndexed() {
+        User withoutSettings = withLocation("default@example.com", "Quận 1, TP.HCM");
+        User enabled = withLocation("enabled@example.com", "Thủ Đức");
+        User disabled = withLocation("disabled@example.com", "Dĩ An");
+        withLocation("blank@example.com", "");
+        entityManager.persist(settings(enabled, true));
+        entityManager.persist(settings(disabled, false));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(userRepository.findAlertDefaultLocations())
+                .extracting(UserRepository.DefaultLocationView::getUserId)
+                .containsExactlyInAnyOrder(withoutSettings.getId(), enabled.getId());
+    }
+
+    private User withLocation(String email, String defaultLocation) {
+        User user = user(email);
+        user.setDefaultLocation(defaultLocation);
+        return entityManager.persist(user);
+    }
+
+    private NotificationSettings settings(User user, boolean aqiAlertEnabled) {
+        return NotificationSettings.builder()
+                .user(user)
+                .aqiAlertEnabled(aqiAlertEnabled)
+                .build();
+    }
+}
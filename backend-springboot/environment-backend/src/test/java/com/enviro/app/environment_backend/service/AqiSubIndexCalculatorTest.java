@@ -0,0 +1,146 @@
+package com.enviro.app.environment_backend.service;
+
+import static com.enviro.app.environment_backend.service.AqiSubIndexCalculator.CO;
+import static com.enviro.app.environment_backend.service.AqiSubIndexCalculator.NO2;
+import static com.enviro.app.environment_backend.service.AqiSubIndexCalculator.O3;
+import static com.enviro.app.environment_backend.service.AqiSubIndexCalculator.PM10;
+import static com.enviro.app.environment_backend.service.AqiSubIndexCalculator.PM25;
+import static com.enviro.app.environment_backend.service.AqiSubIndexCalculator.POLLUTANT_COUNT;
+import static com.enviro.app.environment_backend.service.AqiSubIndexCalculator.SO2;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Giá trị tại biên các hạng của bảng breakpoint US EPA (bản 2024) và cách chọn chất ô nhiễm chính.
+ * Nồng độ trong bảng test ở đơn vị EPA (μg/m3 cho bụi, ppb cho O3/NO2/SO2, ppm cho CO).
+ */
+class AqiSubIndexCalculatorTest {
+
+    // Khối lượng mol (g/mol) để đổi ngược đơn vị EPA sang μg/m3 như OpenWeatherMap trả về
+    private static final double[] MOLAR_MASSES = { 0, 0, 48.00, 46.01, 64.07, 28.01 };
+
+    private final AqiSubIndexCalculator calculator = new AqiSubIndexCalculator();
+
+    @ParameterizedTest(name = "{0} {1} -> {2}")
+    @CsvSource({
+            "PM2.5, 0,     0",
+            "PM2.5, 9.0,   50",
+            "PM2.5, 9.1,   51",
+            "PM2.5, 9.05,  50",
+            "PM2.5, 35.4,  100",
+            "PM2.5, 35.5,  101",
+            "PM2.5, 55.4,  150",
+            "PM2.5, 55.5,  151",
+            "PM2.5, 125.4, 200",
+            "PM2.5, 125.5, 201",
+            "PM2.5, 225.4, 300",
+            "PM2.5, 225.5, 301",
+            "PM2.5, 325.4, 500",
+            "PM2.5, 800,   500",
+            "PM10,  54,    50",
+            "PM10,  55,    51",
+            "PM10,  154,   100",
+            "PM10,  155,   101",
+            "PM10,  424,   300",
+            "PM10,  425,   301",
+            "O3,    54,    50",
+            "O3,    55,    51",
+            "O3,    70,    100",
+            "O3,    71,    101",
+            "NO2,   53,    50",
+            "NO2,   54,    51",
+            "NO2,   100,   100",
+            "NO2,   101,   101",
+            "SO2,   35,    50",
+            "SO2,   36,    51",
+            "SO2,   75,    100",
+            "SO2,   76,    101",
+            "CO,    4.4,   50",
+            "CO,    4.5,   51",
+            "CO,    9.4,   100",
+            "CO,    9.5,   101"
+    })
+    void breakpointEdges(String label, double epaConcentration, int expectedIndex) {
+        int pollutant = pollutant(label);
+
+        double index = calculator.subIndex(pollutant, toMicrogramsPerCubicMeter(pollutant, epaConcentration));
+
+        assertThat(Math.round(index)).isEqualTo(expectedIndex);
+    }
+
+    @Test
+    void missingOrInvalidConcentrationHasNoIndex() {
+        assertThat(calculator.subIndex(PM25, -1)).isEqualTo(-1);
+        assertThat(calculator.subIndex(PM25, Double.NaN)).isEqualTo(-1);
+    }
+
+    @ParameterizedTest(name = "PM2.5 {0}, PM10 {1}, O3 {2} -> {3}")
+    @CsvSource({
+            "35.5, 154, 54,  PM2.5",
+            "35.4, 155, 54,  PM10",
+            "9.0,  54,  71,  O3",
+            // Bằng nhau: giữ chất đứng trước theo thứ tự PM2.5..CO
+            "35.4, 154, 70,  PM2.5"
+    })
+    void dominantPollutantHasTheHighestSubIndex(double pm25, double pm10, double o3ppb, String expected) {
+        Map<String, Double> components = new HashMap<>();
+        components.put("pm2_5", pm25);
+        components.put("pm10", pm10);
+        components.put("o3", toMicrogramsPerCubicMeter(O3, o3ppb));
+        double[] subIndices = new double[POLLUTANT_COUNT];
+
+        int dominant = calculator.subIndices(components, subIndices);
+
+        assertThat(AqiSubIndexCalculator.label(dominant)).isEqualTo(expected);
+        assertThat(subIndices[NO2]).isEqualTo(-1);
+        assertThat(subIndices[SO2]).isEqualTo(-1);
+        assertThat(subIndices[CO]).isEqualTo(-1);
+    }
+
+    @Test
+    void noComponentsMeansNoDominantPollutant() {
+        double[] subIndices = new double[POLLUTANT_COUNT];
+
+        assertThat(calculator.subIndices(Map.of(), subIndices)).isEqualTo(-1);
+        assertThat(calculator.subIndices(null, subIndices)).isEqualTo(-1);
+    }
+
+    @Test
+    void columnarAqiMatchesScalarMaximum() {
+        float[] pm25 = { 9.1f, 35.5f, -1f };
+        float[] pm10 = { 155f, 54f, 55f };
+        float[][] columns = new float[POLLUTANT_COUNT][];
+        columns[PM25] = pm25;
+        columns[PM10] = pm10;
+        float[] out = new float[3];
+
+        calculator.usAqi(columns, 3, out);
+
+        assertThat(Math.round(out[0])).isEqualTo(101);
+        assertThat(Math.round(out[1])).isEqualTo(101);
+        assertThat(Math.round(out[2])).isEqualTo(51);
+    }
+
+    private static int pollutant(String label) {
+        for (int p = 0; p < POLLUTANT_COUNT; p++) {
+            if (AqiSubIndexCalculator.label(p).equals(label)) {
+                return p;
+            }
+        }
+        throw new IllegalArgumentException(label);
+    }
+
+    private static double toMicrogramsPerCubicMeter(int pollutant, double epaConcentration) {
+        return switch (pollutant) {
+            case PM25, PM10 -> epaConcentration;
+            case CO -> epaConcentration * 1000 * MOLAR_MASSES[CO] / 24.45;
+            default -> epaConcentration * MOLAR_MASSES[pollutant] / 24.45;
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package com.enviro.app.environment_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Chuyển trạng thái CLOSED -> OPEN -> HALF_OPEN -> CLOSED/OPEN của circuit breaker
+ */
+class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 100;
+
+    // Cửa sổ 4 lần gọi, cần ít nhất 4 lần, mở khi lỗi >= 50%
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 4, 4, 50, OPEN_MILLIS);
+
+    @Test
+    void staysClosedUntilMinimumCallsAreRecorded() {
+        fail(3);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.execute(() -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void opensAtFailureRateThresholdAndFailsFast() {
+        succeed(2);
+        fail(2);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        AtomicInteger calls = new AtomicInteger();
+        assertThatThrownBy(() -> breaker.execute(calls::incrementAndGet))
+                .isInstanceOf(CircuitBreaker.OpenException.class);
+        assertThat(calls).hasValue(0);
+        assertThat(breaker.isCallPermitted()).isFalse();
+    }
+
+    @Test
+    void staysClosedBelowThreshold() {
+        succeed(3);
+        fail(1);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void onlyTheLastWindowOfCallsCounts() {
+        succeed(4);
+        fail(1);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        // 2 lỗi / 6 lần gọi tính từ đầu, nhưng 2 / 4 lần gọi gần nhất: mở
+        fail(1);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void halfOpenAllowsOneTrialAndClosesOnSuccess() throws InterruptedException {
+        trip();
+        TimeUnit.MILLISECONDS.sleep(OPEN_MILLIS + 20);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.isCallPermitted()).isTrue();
+
+        String result = breaker.execute(() -> {
+            // Đang có lời gọi thử: lời gọi khác bị từ chối
+            assertThat(breaker.isCallPermitted()).isFalse();
+            assertThatThrownBy(() -> breaker.execute(() -> "song song"))
+                    .isInstanceOf(CircuitBreaker.OpenException.class);
+            return "thử";
+        });
+
+        assertThat(result).isEqualTo("thử");
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        // Cửa sổ được làm mới: cần lại đủ minimumCalls trước khi mở
+        fail(3);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failedTrialReopens() throws InterruptedException {
+        trip();
+        TimeUnit.MILLISECONDS.sleep(OPEN_MILLIS + 20);
+
+        fail(1);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.isCallPermitted()).isFalse();
+    }
+
+    @Test
+    void errorDuringTrialReopensAndReleasesTheTrial() throws InterruptedException {
+        trip();
+        TimeUnit.MILLISECONDS.sleep(OPEN_MILLIS + 20);
+
+        assertThatThrownBy(() -> breaker.execute(() -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        // Hết openDuration lần nữa: lời gọi thử mới vẫn được phép
+        TimeUnit.MILLISECONDS.sleep(OPEN_MILLIS + 20);
+        assertThat(breaker.isCallPermitted()).isTrue();
+        assertThat(breaker.execute(() -> "ok")).isEqualTo("ok");
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private void trip() {
+        fail(4);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private void succeed(int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.execute(() -> "ok");
+        }
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertThatThrownBy(() -> breaker.execute(() -> {
+                throw new IllegalStateException("upstream lỗi");
+            })).isInstanceOf(IllegalStateException.class);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.enviro.app.environment_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.enviro.app.environment_backend.dto.GeocodingResponse;
+import com.enviro.app.environment_backend.model.GeocodedAddress;
+import com.enviro.app.environment_backend.repository.GeocodedAddressRepository;
+
+/**
+ * Đường đọc không bao giờ gọi Geocoding API: địa chỉ thiếu trả null ngay và chỉ được geocode nền một lần.
+ */
+class GeocodingCacheServiceTest {
+
+    private static final String ADDRESS = "Quận 1, TP.HCM";
+
+    private final GeocodedAddressRepository repository = mock(GeocodedAddressRepository.class);
+    private final AqiService aqiService = mock(AqiService.class);
+
+    private QueuedExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new QueuedExecutor();
+        when(repository.findById(anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void missReturnsImmediatelyAndResolvesOnceInTheBackground() {
+        GeocodingCacheService service = service(3600);
+
+        assertThat(service.getCoordinates(ADDRESS)).isNull();
+        assertThat(service.getCoordinates(ADDRESS)).isNull();
+        verify(aqiService, never()).getCoordinatesFromAddress(anyString());
+        assertThat(executor.tasks).hasSize(1);
+
+        when(aqiService.getCoordinatesFromAddress(ADDRESS)).thenReturn(coords());
+        executor.runAll();
+
+        assertThat(service.getCoordinates(ADDRESS).getName()).isEqualTo("Quận 1");
+        verify(repository).save(any(GeocodedAddress.class));
+        assertThat(executor.tasks).isEmpty();
+    }
+
+    @Test
+    void failedGeocodeIsNotRetriedUntilTheNegativeEntryExpires() {
+        GeocodingCacheService service = service(3600);
+        service.getCoordinates(ADDRESS);
+        executor.runAll();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(service.getCoordinates(ADDRESS)).isNull();
+        }
+
+        verify(aqiService, times(1)).getCoordinatesFromAddress(ADDRESS);
+        assertThat(executor.tasks).isEmpty();
+    }
+
+    @Test
+    void expiredNegativeEntryIsRetriedInTheBackground() {
+        GeocodingCacheService service = service(0);
+        service.getCoordinates(ADDRESS);
+        executor.runAll();
+
+        assertThat(service.getCoordinates(ADDRESS)).isNull();
+
+        assertThat(executor.tasks).hasSize(1);
+    }
+
+    private GeocodingCacheService service(long negativeTtlSeconds) {
+        return new GeocodingCacheService(repository, aqiService, executor, 100, negativeTtlSeconds);
+    }
+
+    private GeocodingResponse coords() {
+        GeocodingResponse response = new GeocodingResponse();
+        response.setName("Quận 1");
+        response.setLat(10.776);
+        response.setLon(106.700);
+        return response;
+    }
+
+    /**
+     * Giữ tác vụ lại để test tự chạy
+     */
+    private static final class QueuedExecutor extends AbstractExecutorService {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        void runAll() {
+            List<Runnable> pending = new ArrayList<>(tasks);
+            tasks.clear();
+            pending.forEach(Runnable::run);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.enviro.app.environment_backend.service;
+
+import static com.enviro.app.environment_backend.TestUsers.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.enviro.app.environment_backend.model.CommunityGroup;
+import com.enviro.app.environment_backend.model.GroupMember;
+import com.enviro.app.environment_backend.model.Post;
+import com.enviro.app.environment_backend.model.User;
+import com.enviro.app.environment_backend.repository.CommunityGroupRepository;
+import com.enviro.app.environment_backend.repository.GroupMemberRepository;
+import com.enviro.app.environment_backend.repository.PostRepository;
+import com.enviro.app.environment_backend.repository.UserRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Fan-out chỉ chạy sau khi transaction commit, nên test chạy ngoài transaction và tự dọn dữ liệu.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "posts.timeline.size=5",
+        "posts.timeline.fanout-max-members=3"
+})
+@Import(GroupTimelineStore.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GroupTimelineStoreTest {
+
+    @Autowired
+    private GroupTimelineStore store;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CommunityGroupRepository groupRepository;
+
+    @Autowired
+    private GroupMemberRepository memberRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User reader;
+    private CommunityGroup small;
+    private CommunityGroup other;
+
+    @BeforeEach
+    void setUp() {
+        reader = userRepository.save(user("reader@example.com"));
+        small = groupRepository.save(group("Nhóm nhỏ", reader, 2));
+        other = groupRepository.save(group("Nhóm khác", reader, 2));
+        memberRepository.save(GroupMember.builder().user(reader).group(small).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        postRepository.deleteAllInBatch();
+        memberRepository.deleteAllInBatch();
+        groupRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void timelineHoldsOnlyMemberGroupsNewestFirst() {
+        Post first = post(small, "1");
+        post(other, "không thuộc nhóm của reader");
+        Post second = post(small, "2");
+
+        assertThat(ids(store.page(reader.getId(), null, 10))).containsExactly(second.getId(), first.getId());
+    }
+
+    @Test
+    void warmTimelineReadAndFanOutIssueNoQueries() {
+        post(small, "cũ");
+        store.page(reader.getId(), null, 10);
+
+        Post fresh = post(small, "mới");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        store.onGroupPost(small.getId(), small.getMemberCount(), fresh.getId(), fresh.getCreatedAt());
+
+        List<KeysetCursor> keys = store.page(reader.getId(), null, 10);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(keys).hasSize(2);
+        assertThat(keys.get(0).getId()).isEqualTo(fresh.getId());
+    }
+
+    @Test
+    void olderPagesBeyondRingBufferComeFromDatabase() {
+        List<UUID> expected = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            expected.add(0, post(small, "Bài " + i).getId());
+        }
+
+        List<UUID> seen = new ArrayList<>();
+        KeysetCursor after = null;
+        List<KeysetCursor> page = store.page(reader.getId(), null, 4);
+        while (!page.isEmpty()) {
+            seen.addAll(ids(page));
+            after = page.get(page.size() - 1);
+            page = store.page(reader.getId(), after, 4);
+        }
+
+        assertThat(seen).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void largeGroupIsReadWithoutFanOut() {
+        CommunityGroup large = groupRepository.save(group("Nhóm lớn", reader, 10));
+        memberRepository.save(GroupMember.builder().user(reader).group(large).build());
+        Post smallPost = post(small, "nhóm nhỏ");
+        store.page(reader.getId(), null, 10);
+
+        // Không có fan-out cho nhóm lớn: bài viết vẫn xuất hiện nhờ đọc từ DB
+        Post largePost = post(large, "nhóm lớn");
+        store.onGroupPost(large.getId(), large.getMemberCount(), largePost.getId(), largePost.getCreatedAt());
+
+        assertThat(ids(store.page(reader.getId(), null, 10))).containsExactly(largePost.getId(), smallPost.getId());
+    }
+
+    @Test
+    void groupThatOutgrowsFanOutIsReadFromDatabaseOnce() {
+        List<UUID> expected = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            expected.add(0, post(small, "Bài " + i).getId());
+        }
+        store.page(reader.getId(), null, 10);
+
+        // Nhóm vượt ngưỡng fan-out: chỉ còn đọc từ DB như nhóm lớn, không đọc thêm lần nữa như nhóm nhỏ
+        Post grown = post(small, "sau khi nhóm lớn lên");
+        expected.add(0, grown.getId());
+        store.onGroupPost(small.getId(), 10, grown.getId(), grown.getCreatedAt());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<KeysetCursor> keys = store.page(reader.getId(), null, 10);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(ids(keys)).containsExactlyElementsOf(expected);
+    }
+
+    private Post post(CommunityGroup group, String content) {
+        return postRepository.save(Post.builder().user(reader).group(group).content(content).build());
+    }
+
+    private static List<UUID> ids(List<KeysetCursor> keys) {
+        return keys.stream().map(KeysetCursor::getId).toList();
+    }
+
+    private static CommunityGroup group(String name, User creator, int memberCount) {
+        return CommunityGroup.builder()
+                .name(name)
+                .creator(creator)
+                .memberCount(memberCount)
+                .build();
+    }
+}
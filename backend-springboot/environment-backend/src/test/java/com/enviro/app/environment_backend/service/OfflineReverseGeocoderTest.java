@@ -0,0 +1,52 @@
+package com.enviro.app.environment_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Các điểm gần biên tỉnh đã biết: phải ra đúng tỉnh hoặc null (để gọi reverse geocoding từ xa), không bao giờ sai tỉnh.
+ */
+class OfflineReverseGeocoderTest {
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource({
+            "Thủ Dầu Một, 10.980, 106.652, Bình Dương",
+            "Dĩ An,       10.905, 106.768, Bình Dương",
+            "Thuận An,    10.930, 106.700, Bình Dương",
+            "Thủ Đức,     10.850, 106.770, Hồ Chí Minh",
+            "Bến Thành,   10.772, 106.698, Quận 1",
+            "Củ Chi,      10.970, 106.450, Hồ Chí Minh"
+    })
+    void borderPointsResolveToTheirOwnProvince(String place, double lat, double lon, String expected) {
+        OfflineReverseGeocoder geocoder = geocoder("classpath:geo/test-boundaries.geojson", true);
+
+        assertThat(geocoder.findName(lat, lon)).as(place).isEqualTo(expected);
+    }
+
+    @Test
+    void pointOutsideEveryBoundaryFallsThrough() {
+        OfflineReverseGeocoder geocoder = geocoder("classpath:geo/test-boundaries.geojson", true);
+
+        assertThat(geocoder.findName(21.028, 105.852)).isNull();
+    }
+
+    @Test
+    void disabledByDefaultNeverAnswers() {
+        OfflineReverseGeocoder geocoder = geocoder("classpath:geo/test-boundaries.geojson", false);
+
+        assertThat(geocoder.findName(10.776, 106.700)).isNull();
+    }
+
+    private OfflineReverseGeocoder geocoder(String boundaries, boolean enabled) {
+        OfflineReverseGeocoder geocoder = new OfflineReverseGeocoder(
+                new DefaultResourceLoader(), new ObjectMapper(), boundaries, enabled);
+        geocoder.load();
+        return geocoder;
+    }
+}
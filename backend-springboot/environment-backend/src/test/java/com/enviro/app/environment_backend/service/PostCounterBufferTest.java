@@ -0,0 +1,50 @@
+package com.enviro.app.environment_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Lô UPDATE thất bại không được làm mất các thay đổi đã lấy ra khỏi bộ đệm
+ */
+class PostCounterBufferTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PostCounterBuffer buffer = new PostCounterBuffer(jdbcTemplate, mock(PlatformTransactionManager.class));
+
+    @Test
+    void failedFlushKeepsDeltasForTheNextFlush() {
+        UUID postId = UUID.randomUUID();
+        buffer.record(postId, 3, 1);
+        List<List<Object[]>> written = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new QueryTimeoutException("DB quá tải"))
+                .thenAnswer(invocation -> {
+                    written.add(invocation.getArgument(1));
+                    return new int[] { 1 };
+                });
+
+        buffer.flush();
+        assertThat(buffer.pendingLikes(postId)).isEqualTo(3);
+        assertThat(buffer.pendingComments(postId)).isEqualTo(1);
+
+        buffer.record(postId, 1, 0);
+        buffer.flush();
+
+        assertThat(written).singleElement()
+                .satisfies(batch -> assertThat(batch).singleElement()
+                        .isEqualTo(new Object[] { 4L, 1L, postId }));
+        assertThat(buffer.pendingLikes(postId)).isZero();
+    }
+}
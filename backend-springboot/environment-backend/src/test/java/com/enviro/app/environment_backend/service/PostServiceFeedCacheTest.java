@@ -0,0 +1,118 @@
+package com.enviro.app.environment_backend.service;
+
+import static com.enviro.app.environment_backend.TestUsers.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.enviro.app.environment_backend.dto.CursorPageResponse;
+import com.enviro.app.environment_backend.dto.PostRequest;
+import com.enviro.app.environment_backend.dto.PostResponse;
+import com.enviro.app.environment_backend.model.Post;
+import com.enviro.app.environment_backend.model.User;
+import com.enviro.app.environment_backend.repository.LikeRepository;
+import com.enviro.app.environment_backend.repository.PostRepository;
+import com.enviro.app.environment_backend.repository.UserRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Feed dùng chung: trang đã cache + tập đã like của user không tốn câu truy vấn nào,
+ * và cờ "đã like" được ghép đúng cho từng user. Invalidate chạy sau commit nên test chạy ngoài transaction.
+ */
+@PostServiceSliceTest
+class PostServiceFeedCacheTest {
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private FeedPageCache feedPageCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User reader;
+    private User other;
+    private List<Post> posts;
+
+    @BeforeEach
+    void setUp() {
+        reader = userRepository.save(user("reader@example.com"));
+        other = userRepository.save(user("other@example.com"));
+        posts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            posts.add(postRepository.save(Post.builder().user(other).content("Bài viết " + i).build()));
+        }
+        // Bài viết được thêm thẳng qua repository: bỏ trang đầu còn lại từ test trước
+        feedPageCache.invalidateFirstPages();
+        postService.toggleLike(posts.get(3).getId(), reader);
+    }
+
+    @AfterEach
+    void tearDown() {
+        likeRepository.deleteAllInBatch();
+        postRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void warmFeedCostsNoStatementsAndOverlaysLikedFlagPerUser() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        postService.getFeed(reader, null, 20);
+
+        statistics.clear();
+        CursorPageResponse<PostResponse> readerPage = postService.getFeed(reader, null, 20);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(likedIds(readerPage)).containsExactly(posts.get(3).getId());
+
+        // User khác dùng lại trang đã cache, chỉ đọc tập đã like của mình một lần
+        statistics.clear();
+        CursorPageResponse<PostResponse> otherPage = postService.getFeed(other, null, 20);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(likedIds(otherPage)).isEmpty();
+        assertThat(otherPage.getItems()).hasSize(10);
+    }
+
+    @Test
+    void likeAndNewPostRefreshTheSharedPage() {
+        postService.getFeed(reader, null, 20);
+        postService.getFeed(other, null, 20);
+
+        postService.toggleLike(posts.get(7).getId(), other);
+        CursorPageResponse<PostResponse> otherPage = postService.getFeed(other, null, 20);
+        assertThat(likedIds(otherPage)).containsExactly(posts.get(7).getId());
+        assertThat(otherPage.getItems()).filteredOn(post -> post.getId().equals(posts.get(7).getId()))
+                .singleElement()
+                .satisfies(post -> assertThat(post.getLikesCount()).isEqualTo(1));
+        assertThat(likedIds(postService.getFeed(reader, null, 20))).containsExactly(posts.get(3).getId());
+
+        PostResponse created = postService.createPost(other, new PostRequest("Bài viết mới", null));
+        assertThat(postService.getFeed(reader, null, 20).getItems().get(0).getId()).isEqualTo(created.getId());
+    }
+
+    private List<UUID> likedIds(CursorPageResponse<PostResponse> page) {
+        return page.getItems().stream()
+                .filter(PostResponse::isLikedByCurrentUser)
+                .map(PostResponse::getId)
+                .toList();
+    }
+}
@@ -0,0 +1,118 @@
+package com.enviro.app.environment_backend.service;
+
+import static com.enviro.app.environment_backend.TestUsers.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.enviro.app.environment_backend.dto.CommentRequest;
+import com.enviro.app.environment_backend.model.CommunityGroup;
+import com.enviro.app.environment_backend.model.GroupMember;
+import com.enviro.app.environment_backend.model.Post;
+import com.enviro.app.environment_backend.model.User;
+import com.enviro.app.environment_backend.repository.CommentRepository;
+import com.enviro.app.environment_backend.repository.CommunityGroupRepository;
+import com.enviro.app.environment_backend.repository.GroupMemberRepository;
+import com.enviro.app.environment_backend.repository.LikeRepository;
+import com.enviro.app.environment_backend.repository.PostRepository;
+import com.enviro.app.environment_backend.repository.UserRepository;
+
+/**
+ * Bài viết nhóm chỉ thành viên nhóm mới xem, like và comment được, và không lên trending chung.
+ * Trending chỉ cập nhật sau commit nên test chạy ngoài transaction và tự dọn dữ liệu.
+ */
+@PostServiceSliceTest
+class PostServiceGroupAccessTest {
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CommunityGroupRepository groupRepository;
+
+    @Autowired
+    private GroupMemberRepository memberRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private TrendingPostRanker trendingRanker;
+
+    private User member;
+    private User outsider;
+    private Post groupPost;
+
+    @BeforeEach
+    void setUp() {
+        member = userRepository.save(user("member@example.com"));
+        outsider = userRepository.save(user("outsider@example.com"));
+        CommunityGroup group = groupRepository.save(CommunityGroup.builder()
+                .name("Nhóm kín")
+                .creator(member)
+                .memberCount(1)
+                .build());
+        memberRepository.save(GroupMember.builder().user(member).group(group).build());
+        groupPost = postRepository.saveAndFlush(Post.builder().user(member).group(group).content("Chỉ thành viên").build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        likeRepository.deleteAllInBatch();
+        commentRepository.deleteAllInBatch();
+        postRepository.deleteAllInBatch();
+        memberRepository.deleteAllInBatch();
+        groupRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void memberCanReadLikeAndComment() {
+        assertThat(postService.getPostById(groupPost.getId(), member).getId()).isEqualTo(groupPost.getId());
+        assertThat(postService.toggleLike(groupPost.getId(), member).isLikedByCurrentUser()).isTrue();
+        postService.addComment(groupPost.getId(), member, comment());
+        assertThat(postService.getPostComments(groupPost.getId(), member, null, null).getItems()).hasSize(1);
+    }
+
+    @Test
+    void groupPostInteractionsStayOffTrending() {
+        postService.toggleLike(groupPost.getId(), member);
+        postService.addComment(groupPost.getId(), member, comment());
+
+        assertThat(trendingRanker.top(100)).doesNotContain(groupPost.getId());
+    }
+
+    @Test
+    void outsiderIsForbiddenEverywhere() {
+        assertForbidden(() -> postService.getPostById(groupPost.getId(), outsider));
+        assertForbidden(() -> postService.toggleLike(groupPost.getId(), outsider));
+        assertForbidden(() -> postService.addComment(groupPost.getId(), outsider, comment()));
+        assertForbidden(() -> postService.getPostComments(groupPost.getId(), outsider, null, null));
+        assertForbidden(() -> postService.getCommentCount(groupPost.getId(), outsider));
+    }
+
+    private void assertForbidden(Runnable call) {
+        assertThatThrownBy(call::run)
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN));
+    }
+
+    private static CommentRequest comment() {
+        return new CommentRequest("Bình luận");
+    }
+}
@@ -0,0 +1,141 @@
+package com.enviro.app.environment_backend.service;
+
+import static com.enviro.app.environment_backend.TestUsers.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.enviro.app.environment_backend.dto.PostResponse;
+import com.enviro.app.environment_backend.model.Post;
+import com.enviro.app.environment_backend.model.User;
+import com.enviro.app.environment_backend.repository.LikeRepository;
+import com.enviro.app.environment_backend.repository.PostRepository;
+import com.enviro.app.environment_backend.repository.UserRepository;
+
+/**
+ * Stress test cho toggleLike: nhiều request đồng thời phải được commit thật, nên test chạy ngoài transaction
+ * và dùng H2 ở chế độ PostgreSQL (hỗ trợ INSERT ... ON CONFLICT DO NOTHING).
+ */
+@PostServiceSliceTest
+class PostServiceLikeConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostCounterBuffer counterBuffer;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User author;
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        author = userRepository.save(user("author@example.com"));
+        post = postRepository.save(Post.builder().user(author).content("Bài viết").build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        likeRepository.deleteAllInBatch();
+        postRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void concurrentTapsBySameUserNeverLoseOrDoubleAFlip() throws Exception {
+        int taps = 41;
+        List<Callable<PostResponse>> tasks = new ArrayList<>();
+        for (int i = 0; i < taps; i++) {
+            tasks.add(() -> postService.toggleLike(post.getId(), author));
+        }
+
+        // Lượt bị từ chối (409) không thay đổi gì; mỗi lượt thành công đảo trạng thái đúng một lần
+        List<PostResponse> responses = runConcurrently(tasks);
+        counterBuffer.flush();
+
+        long likes = responses.stream().filter(PostResponse::isLikedByCurrentUser).count();
+        long unlikes = responses.size() - likes;
+        assertThat(likes - unlikes).isBetween(0L, 1L);
+        assertThat(likeRepository.count()).isEqualTo(likes - unlikes);
+        assertThat(likesCountColumn()).isEqualTo(likes - unlikes);
+    }
+
+    @Test
+    void viralPostCountsEveryConcurrentLike() throws Exception {
+        int likers = 200;
+        List<Callable<PostResponse>> tasks = new ArrayList<>();
+        for (int i = 0; i < likers; i++) {
+            User liker = userRepository.save(user("liker" + i + "@example.com"));
+            tasks.add(() -> postService.toggleLike(post.getId(), liker));
+        }
+
+        List<PostResponse> responses = runConcurrently(tasks);
+        counterBuffer.flush();
+
+        assertThat(responses).hasSize(likers)
+                .allSatisfy(response -> assertThat(response.isLikedByCurrentUser()).isTrue());
+        assertThat(likeRepository.count()).isEqualTo(likers);
+        assertThat(likesCountColumn()).isEqualTo(likers);
+    }
+
+    private List<PostResponse> runConcurrently(List<Callable<PostResponse>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<PostResponse>> futures = new ArrayList<>();
+            for (Callable<PostResponse> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<PostResponse> responses = new ArrayList<>();
+            for (Future<PostResponse> future : futures) {
+                try {
+                    responses.add(future.get());
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOfSatisfying(ResponseStatusException.class,
+                            rejected -> assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+                }
+            }
+            return responses;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long likesCountColumn() {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM posts WHERE id = ?", Long.class, post.getId());
+    }
+}
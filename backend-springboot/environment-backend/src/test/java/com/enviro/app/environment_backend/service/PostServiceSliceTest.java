@@ -0,0 +1,31 @@
+package com.enviro.app.environment_backend.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Cấu hình chung cho test PostService: JPA trên H2 ở chế độ PostgreSQL (hỗ trợ INSERT ... ON CONFLICT)
+ * cùng các thành phần trong bộ nhớ của bài viết. Bộ đệm, cache và trending chỉ cập nhật sau commit,
+ * nên test chạy ngoài transaction và tự dọn dữ liệu. Cùng một cấu hình nên các lớp test dùng chung context.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:posts;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ PostService.class, PostCounterBuffer.class, TrendingPostRanker.class, GroupTimelineStore.class,
+          FeedPageCache.class, LikedPostIndex.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@interface PostServiceSliceTest {
+}
@@ -0,0 +1,144 @@
+package com.enviro.app.environment_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.enviro.app.environment_backend.dto.SavedLocationAqiResponse;
+import com.enviro.app.environment_backend.model.SavedLocation;
+import com.enviro.app.environment_backend.model.User;
+import com.enviro.app.environment_backend.repository.SavedLocationRepository;
+import com.enviro.app.environment_backend.repository.UserRepository;
+
+/**
+ * Vị trí lỗi, quá hạn hoặc bị pool từ chối vẫn có mặt trong danh sách với giá trị "N/A"
+ */
+class SavedLocationServiceTest {
+
+    private final SavedLocationRepository locationRepository = mock(SavedLocationRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final AqiService aqiService = mock(AqiService.class);
+    private final GeocodingCacheService geocodingCacheService = mock(GeocodingCacheService.class);
+    private final AqiAlertEngine aqiAlertEngine = mock(AqiAlertEngine.class);
+
+    private ExecutorService executor;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = User.builder()
+                .id(UUID.randomUUID())
+                .email("user@example.com")
+                .defaultLocation("Quận 1, TP.HCM")
+                .build();
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(locationRepository.findByUserId(user.getId())).thenReturn(List.of(SavedLocation.builder()
+                .id(UUID.randomUUID())
+                .name("Nhà")
+                .latitude(21.03)
+                .longitude(105.85)
+                .user(user)
+                .build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void defaultLocationThatCannotBeResolvedIsReportedAsNotAvailable() {
+        executor = Executors.newFixedThreadPool(2);
+        when(geocodingCacheService.getCoordinates("Quận 1, TP.HCM")).thenReturn(null);
+        when(aqiService.getCurrentAqiByGps(anyDouble(), anyDouble())).thenReturn(null);
+
+        List<SavedLocationAqiResponse> responses = service(executor).getAqiForAllSavedLocations(user.getId());
+
+        assertThat(responses).hasSize(2);
+        assertThat(responses.get(0).getLocationName()).isEqualTo("Quận 1, TP.HCM (Mặc định)");
+        assertThat(responses).allSatisfy(response -> assertThat(response.getStatus()).isEqualTo("N/A"));
+    }
+
+    @Test
+    void slowDefaultLocationTimesOutToNotAvailable() {
+        executor = Executors.newFixedThreadPool(2);
+        when(geocodingCacheService.getCoordinates("Quận 1, TP.HCM")).thenAnswer(invocation -> {
+            TimeUnit.SECONDS.sleep(5);
+            return null;
+        });
+
+        long start = System.nanoTime();
+        List<SavedLocationAqiResponse> responses = service(executor).getAqiForAllSavedLocations(user.getId());
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+        assertThat(responses).hasSize(2);
+        assertThat(responses.get(0).getLocationName()).isEqualTo("Quận 1, TP.HCM (Mặc định)");
+        assertThat(responses.get(0).getStatus()).isEqualTo("N/A");
+    }
+
+    @Test
+    void saturatedPoolFailsFastInsteadOfRunningOnTheCaller() {
+        List<SavedLocationAqiResponse> responses = service(new RejectingExecutor()).getAqiForAllSavedLocations(user.getId());
+
+        assertThat(responses).extracting(SavedLocationAqiResponse::getLocationName)
+                .containsExactly("Quận 1, TP.HCM (Mặc định)", "Nhà");
+        assertThat(responses).allSatisfy(response -> assertThat(response.getStatus()).isEqualTo("N/A"));
+        verifyNoInteractions(aqiService, geocodingCacheService);
+    }
+
+    private SavedLocationService service(ExecutorService aqiExecutor) {
+        return new SavedLocationService(locationRepository, userRepository, aqiService, geocodingCacheService,
+                aqiExecutor, aqiAlertEngine, 500);
+    }
+
+    /**
+     * Pool đã đầy: từ chối mọi tác vụ
+     */
+    private static final class RejectingExecutor extends AbstractExecutorService {
+        @Override
+        public void execute(Runnable command) {
+            throw new RejectedExecutionException("pool đầy");
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.enviro.app.environment_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Các lời gọi trùng khóa đang chạy đồng thời chỉ gọi upstream một lần và cùng nhận kết quả (hoặc lỗi) đó
+ */
+class SingleFlightTest {
+
+    private static final int FOLLOWERS = 8;
+
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+
+    @Test
+    void concurrentCallsForTheSameKeyShareOneLoad() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Object> results = new ConcurrentLinkedQueue<>();
+
+        List<Thread> threads = startCoalescedCalls(release, results, () -> {
+            loads.incrementAndGet();
+            return "AQI 42";
+        });
+        release.countDown();
+        joinAll(threads);
+
+        assertThat(loads).hasValue(1);
+        assertThat(results).hasSize(FOLLOWERS + 1).containsOnly("AQI 42");
+        assertThat(flights.inFlightCount()).isZero();
+    }
+
+    @Test
+    void failureIsSharedWithEveryWaiterAndNotCached() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Object> results = new ConcurrentLinkedQueue<>();
+        IllegalStateException failure = new IllegalStateException("upstream lỗi");
+
+        List<Thread> threads = startCoalescedCalls(release, results, () -> {
+            throw failure;
+        });
+        release.countDown();
+        joinAll(threads);
+
+        assertThat(results).hasSize(FOLLOWERS + 1).containsOnly(failure);
+        assertThat(flights.inFlightCount()).isZero();
+        // Lỗi không được giữ lại: lời gọi sau gọi upstream lại
+        assertThat(flights.execute("hcm", () -> "AQI 42")).isEqualTo("AQI 42");
+    }
+
+    @Test
+    void differentKeysAndSequentialCallsLoadSeparately() {
+        AtomicInteger loads = new AtomicInteger();
+
+        flights.execute("hcm", () -> "hcm-" + loads.incrementAndGet());
+        flights.execute("hcm", () -> "hcm-" + loads.incrementAndGet());
+        String nested = flights.execute("hn", () -> flights.execute("dn", () -> "dn-" + loads.incrementAndGet()));
+
+        assertThat(loads).hasValue(3);
+        assertThat(nested).isEqualTo("dn-3");
+    }
+
+    /**
+     * Một luồng dẫn đầu bị giữ trong loader đến khi `release` mở, các luồng còn lại chờ trên cùng khóa
+     */
+    private List<Thread> startCoalescedCalls(CountDownLatch release, ConcurrentLinkedQueue<Object> results,
+                                             Supplier<String> loader) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        Thread leader = call(results, () -> {
+            await(release);
+            return loader.get();
+        });
+        threads.add(leader);
+        while (flights.inFlightCount() == 0) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        for (int i = 0; i < FOLLOWERS; i++) {
+            threads.add(call(results, loader));
+        }
+        // Mọi luồng đều đang chờ (leader trên latch, các luồng sau trên kết quả của leader)
+        for (Thread thread : threads) {
+            while (thread.getState() != Thread.State.WAITING) {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+        }
+        return threads;
+    }
+
+    private Thread call(ConcurrentLinkedQueue<Object> results, Supplier<String> loader) {
+        Thread thread = new Thread(() -> {
+            try {
+                results.add(flights.execute("hcm", loader));
+            } catch (RuntimeException e) {
+                results.add(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void joinAll(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.enviro.app.environment_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TrendingPostRankerTest {
+
+    private TrendingPostRanker ranker;
+
+    @BeforeEach
+    void setUp() {
+        ranker = new TrendingPostRanker(null, 6.0, 3, 3.0, 1.0, 2.0, 7);
+    }
+
+    @Test
+    void engagementRanksAboveNewerQuietPost() {
+        UUID busy = UUID.randomUUID();
+        UUID quiet = UUID.randomUUID();
+        ranker.onPostCreated(busy, OffsetDateTime.now().minusHours(1));
+        ranker.onPostCreated(quiet, OffsetDateTime.now());
+        ranker.onLikeToggled(busy, true, OffsetDateTime.now().minusHours(1));
+        ranker.onCommentAdded(busy);
+
+        assertThat(ranker.top(10)).containsExactly(busy, quiet);
+    }
+
+    @Test
+    void olderEngagementDecays() {
+        UUID old = UUID.randomUUID();
+        UUID fresh = UUID.randomUUID();
+        // Đăng cách nhau 2 half-life: bài cũ cần hơn 4 lần tương tác mới vượt được bài mới
+        ranker.onPostCreated(old, OffsetDateTime.now().minusHours(12));
+        ranker.onPostCreated(fresh, OffsetDateTime.now());
+        ranker.onLikeToggled(old, true, OffsetDateTime.now().minusHours(12));
+
+        assertThat(ranker.top(10)).containsExactly(fresh, old);
+    }
+
+    @Test
+    void unlikeCancelsLike() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        OffsetDateTime bCreatedAt = OffsetDateTime.now().minusMinutes(2);
+        ranker.onPostCreated(a, OffsetDateTime.now().minusMinutes(1));
+        ranker.onPostCreated(b, bCreatedAt);
+        ranker.onLikeToggled(b, true, bCreatedAt);
+        ranker.onLikeToggled(b, false, bCreatedAt);
+
+        assertThat(ranker.top(10)).containsExactly(a, b);
+    }
+
+    @Test
+    void unlikeOfOldPostNeverSubtractsMoreThanALikeAdded() {
+        UUID old = UUID.randomUUID();
+        UUID older = UUID.randomUUID();
+        // Like được seed như thể xảy ra lúc đăng bài (24 giờ = 4 half-life trước)
+        OffsetDateTime createdAt = OffsetDateTime.now().minusHours(24);
+        ranker.onPostCreated(old, createdAt);
+        ranker.onPostCreated(older, createdAt.minusHours(12));
+
+        ranker.onLikeToggled(old, false, createdAt);
+
+        // Trừ theo thời điểm hiện tại (1 > 3/16) sẽ loại bài khỏi bảng xếp hạng
+        assertThat(ranker.top(10)).containsExactly(old, older);
+    }
+
+    @Test
+    void keepsOnlyTopCapacityPosts() {
+        UUID lowest = UUID.randomUUID();
+        ranker.onPostCreated(lowest, OffsetDateTime.now().minusHours(3));
+        for (int i = 0; i < 3; i++) {
+            ranker.onPostCreated(UUID.randomUUID(), OffsetDateTime.now().minusMinutes(i));
+        }
+
+        assertThat(ranker.top(10)).hasSize(3).doesNotContain(lowest);
+        assertThat(ranker.top(2)).hasSize(2);
+    }
+}
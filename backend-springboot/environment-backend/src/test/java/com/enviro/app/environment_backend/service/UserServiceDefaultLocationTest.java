@@ -0,0 +1,93 @@
+package com.enviro.app.environment_backend.service;
+
+import static com.enviro.app.environment_backend.TestUsers.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.enviro.app.environment_backend.dto.GeocodingResponse;
+import com.enviro.app.environment_backend.dto.UpdateProfileRequest;
+import com.enviro.app.environment_backend.model.User;
+import com.enviro.app.environment_backend.repository.GeocodedAddressRepository;
+import com.enviro.app.environment_backend.repository.UserRepository;
+
+/**
+ * Đổi vị trí mặc định trong transaction thật: tọa độ phải được ghi xuống geocoded_addresses
+ * (không chỉ vào LRU) trước khi chỉ mục cảnh báo được dựng lại.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({ UserService.class, GeocodingCacheService.class, UserServiceDefaultLocationTest.AqiPool.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserServiceDefaultLocationTest {
+
+    private static final String ADDRESS = "Quận 1, TP.HCM";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GeocodedAddressRepository geocodedAddressRepository;
+
+    @MockBean
+    private AqiService aqiService;
+
+    @MockBean
+    private AqiAlertEngine aqiAlertEngine;
+
+    @AfterEach
+    void tearDown() {
+        geocodedAddressRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void newDefaultLocationIsPersistedBeforeReindex() throws InterruptedException {
+        GeocodingResponse coords = new GeocodingResponse();
+        coords.setName("Quận 1");
+        coords.setLat(10.776);
+        coords.setLon(106.700);
+        when(aqiService.getCoordinatesFromAddress(ADDRESS)).thenReturn(coords);
+        User saved = userRepository.save(user("user@example.com"));
+        // reindexUser là synchronized: chờ bằng latch thay vì verify(timeout) (giữ monitor của mock)
+        CountDownLatch reindexed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            reindexed.countDown();
+            return null;
+        }).when(aqiAlertEngine).reindexUser(saved.getId());
+
+        UpdateProfileRequest request = new UpdateProfileRequest();
+        request.setDefaultLocation(ADDRESS);
+        userService.updateUserProfile(saved.getId(), request);
+
+        assertThat(reindexed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(geocodedAddressRepository.findById(GeocodingCacheService.normalize(ADDRESS)))
+                .hasValueSatisfying(row -> assertThat(row.getResolvedName()).isEqualTo("Quận 1"));
+    }
+
+    @TestConfiguration
+    static class AqiPool {
+        @Bean(name = "aqiExecutor", destroyMethod = "shutdownNow")
+        ExecutorService aqiExecutor() {
+            return Executors.newSingleThreadExecutor();
+        }
+    }
+}
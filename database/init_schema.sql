@@ -4,6 +4,7 @@ DROP TABLE IF EXISTS notifications CASCADE;
 DROP TABLE IF EXISTS user_badges CASCADE;
 DROP TABLE IF EXISTS badges CASCADE;
 DROP TABLE IF EXISTS chatbot_history CASCADE;
+DROP TABLE IF EXISTS post_trending_scores CASCADE;
 DROP TABLE IF EXISTS likes CASCADE;
 DROP TABLE IF EXISTS comments CASCADE;
 DROP TABLE IF EXISTS posts CASCADE;
@@ -12,6 +13,9 @@ DROP TABLE IF EXISTS reports CASCADE;
 DROP TABLE IF EXISTS waste_categories CASCADE;
 DROP TABLE IF EXISTS users CASCADE;
 DROP TABLE IF EXISTS saved_locations CASCADE;
+DROP TABLE IF EXISTS geocoded_addresses CASCADE;
+DROP TABLE IF EXISTS aqi_observations CASCADE;
+DROP TABLE IF EXISTS aqi_rollups CASCADE;
 DROP TABLE IF EXISTS password_reset_tokens CASCADE;
 DROP TABLE IF EXISTS user_quiz_scores CASCADE;
 DROP TABLE IF EXISTS quiz_questions CASCADE;
@@ -94,6 +98,8 @@ CREATE TABLE posts (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
     user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
     content TEXT NOT NULL,
+    likes_count BIGINT NOT NULL DEFAULT 0, -- Bộ đếm phi chuẩn hóa, đối soát định kỳ với bảng likes
+    comments_count BIGINT NOT NULL DEFAULT 0, -- Bộ đếm phi chuẩn hóa, đối soát định kỳ với bảng comments
     created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
     updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
 );
@@ -119,6 +125,14 @@ CREATE TABLE likes (
 );
 COMMENT ON TABLE likes IS 'Lưu trữ lượt thả tim cho các bài viết (FR-8.1.2)';
 
+-- --- Bảng Checkpoint điểm Trending ---
+CREATE TABLE post_trending_scores (
+    post_id UUID PRIMARY KEY REFERENCES posts(id) ON DELETE CASCADE,
+    score DOUBLE PRECISION NOT NULL, -- Điểm forward decay tính theo mốc landmark
+    landmark BIGINT NOT NULL -- epoch giây
+);
+COMMENT ON TABLE post_trending_scores IS 'Checkpoint định kỳ của bảng xếp hạng bài viết trending trong bộ nhớ';
+
 -- --- Bảng Lịch sử Chatbot (FR-1.2.3, FR-5.x) ---
 CREATE TABLE chatbot_history (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
@@ -160,6 +174,53 @@ CREATE TABLE saved_locations (
 );
 COMMENT ON TABLE saved_locations IS 'Lưu trữ các vị trí đã lưu của người dùng (ví dụ: "Nhà", "Công ty")';
 
+-- --- Bảng Cache Geocoding (địa chỉ -> tọa độ) ---
+CREATE TABLE geocoded_addresses (
+    normalized_address VARCHAR(255) PRIMARY KEY,
+    address VARCHAR(255) NOT NULL,
+    latitude DOUBLE PRECISION NOT NULL,
+    longitude DOUBLE PRECISION NOT NULL,
+    resolved_name VARCHAR(255),
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+COMMENT ON TABLE geocoded_addresses IS 'Cache kết quả Geocoding cho vị trí mặc định của người dùng, khóa theo địa chỉ đã chuẩn hóa';
+
+-- --- Bảng Lịch sử AQI theo ô lưới (append-only) ---
+CREATE TABLE aqi_observations (
+    cell_id BIGINT NOT NULL,
+    observed_at BIGINT NOT NULL, -- epoch giây
+    aqi SMALLINT NOT NULL,
+    co REAL,
+    no REAL,
+    no2 REAL,
+    o3 REAL,
+    so2 REAL,
+    pm2_5 REAL,
+    pm10 REAL,
+    nh3 REAL,
+    PRIMARY KEY (cell_id, observed_at)
+);
+COMMENT ON TABLE aqi_observations IS 'Quan sát AQI thô theo ô lưới, được gộp dần vào aqi_rollups';
+
+-- --- Bảng AQI đã gộp theo giờ/ngày ---
+CREATE TABLE aqi_rollups (
+    cell_id BIGINT NOT NULL,
+    resolution VARCHAR(5) NOT NULL, -- 'HOUR' hoặc 'DAY'
+    bucket_start BIGINT NOT NULL, -- epoch giây
+    aqi_avg REAL,
+    aqi_max SMALLINT,
+    pm2_5 REAL,
+    pm10 REAL,
+    o3 REAL,
+    no2 REAL,
+    so2 REAL,
+    co REAL,
+    sample_count INT NOT NULL,
+    PRIMARY KEY (cell_id, resolution, bucket_start)
+);
+COMMENT ON TABLE aqi_rollups IS 'Lịch sử AQI đã downsample theo giờ và theo ngày';
+
 -- --- Bảng Token Reset Mật khẩu ---
 CREATE TABLE password_reset_tokens (
     id BIGSERIAL PRIMARY KEY,
@@ -206,14 +267,15 @@ CREATE INDEX ON reports (user_id);
 CREATE INDEX ON reports (category_id);
 CREATE INDEX ON report_media (report_id);
 CREATE INDEX ON posts (user_id);
-CREATE INDEX ON comments (post_id);
+CREATE INDEX idx_posts_created_at_id ON posts (created_at DESC, id DESC); -- Phân trang feed theo con trỏ
+CREATE INDEX idx_comments_post_created_at_id ON comments (post_id, created_at DESC, id DESC); -- Phân trang comments theo con trỏ
 CREATE INDEX ON comments (user_id);
 CREATE INDEX ON likes (post_id);
 CREATE INDEX ON chatbot_history (user_id);
 CREATE INDEX ON saved_locations (user_id);
 CREATE INDEX ON password_reset_tokens (user_id);
 CREATE INDEX ON password_reset_tokens (token);
-CREATE INDEX ON notifications (user_id);
+CREATE INDEX idx_notifications_user_status_created_at ON notifications (user_id, status, created_at); -- Thông báo chưa đọc, đánh dấu đã đọc hàng loạt
 CREATE INDEX ON notifications (status);
 CREATE INDEX ON notifications (created_at);
 CREATE INDEX ON waste_collection_points (type);
@@ -319,6 +381,10 @@ CREATE TABLE group_members (
 );
 COMMENT ON TABLE group_members IS 'Thành viên của các nhóm cộng đồng';
 
+-- Bài viết thuộc nhóm (NULL = feed chung); bảng posts được tạo trước community_groups
+ALTER TABLE posts ADD COLUMN group_id UUID REFERENCES community_groups(id) ON DELETE CASCADE;
+CREATE INDEX idx_posts_group_created_at_id ON posts (group_id, created_at DESC, id DESC); -- Timeline nhóm
+
 -- --- Bảng Phần thưởng/Voucher (FR-9.1.3) ---
 CREATE TYPE reward_type AS ENUM ('voucher', 'tree', 'merchandise', 'points_bonus');
 
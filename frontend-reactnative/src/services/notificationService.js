@@ -52,6 +52,28 @@ export const markAllNotificationsAsRead = async () => {
     return response.json();
 };
 
+/**
+ * Đánh dấu đã đọc các thông báo đến một mốc: thông báo mới nhất client đã hiển thị (notificationId)
+ * hoặc một thời điểm (upTo, ISO-8601, bao gồm thông báo đúng thời điểm đó). Trả về { message, updated }.
+ * PUT /api/notifications/read-up-to
+ */
+export const markNotificationsReadUpTo = async ({ notificationId, upTo } = {}) => {
+    const params = new URLSearchParams();
+    if (notificationId) params.append('notificationId', notificationId);
+    if (upTo) params.append('upTo', upTo);
+
+    const response = await fetchWithAuth(`${API_BASE_URL}/notifications/read-up-to?${params.toString()}`, {
+        method: 'PUT',
+    });
+
+    if (!response.ok) {
+        const errorDetail = await response.json().catch(() => ({ message: 'Lỗi đánh dấu đã đọc' }));
+        throw new Error(errorDetail.message || 'Không thể đánh dấu thông báo đã đọc.');
+    }
+
+    return response.json();
+};
+
 /**
  * Lấy cài đặt thông báo của user
  * GET /api/notifications/settings
@@ -23,11 +23,17 @@ export const createPost = async (postData) => {
 };
 
 /**
- * Lấy tất cả bài viết (FR-8.1.1)
- * GET /api/posts
+ * Lấy feed bài viết theo trang (FR-8.1.1)
+ * GET /api/posts?cursor=...&limit=...
+ * Trả về { items, nextCursor, hasMore }; gọi lại với nextCursor để lấy trang tiếp theo.
  */
-export const getAllPosts = async () => {
-    const response = await fetchWithAuth(`${API_BASE_URL}/posts`, {
+export const getPosts = async ({ cursor, limit } = {}) => {
+    const params = new URLSearchParams();
+    if (cursor) params.append('cursor', cursor);
+    if (limit) params.append('limit', String(limit));
+    const query = params.toString();
+
+    const response = await fetchWithAuth(`${API_BASE_URL}/posts${query ? `?${query}` : ''}`, {
         method: 'GET',
     });
 
@@ -39,6 +45,47 @@ export const getAllPosts = async () => {
     return response.json();
 };
 
+/**
+ * Lấy timeline các nhóm cộng đồng đã tham gia theo trang (FR-8.1.3)
+ * GET /api/posts/timeline?cursor=...&limit=...
+ * Trả về { items, nextCursor, hasMore }. Đăng bài vào nhóm: createPost({ content, groupId }).
+ */
+export const getGroupTimeline = async ({ cursor, limit } = {}) => {
+    const params = new URLSearchParams();
+    if (cursor) params.append('cursor', cursor);
+    if (limit) params.append('limit', String(limit));
+    const query = params.toString();
+
+    const response = await fetchWithAuth(`${API_BASE_URL}/posts/timeline${query ? `?${query}` : ''}`, {
+        method: 'GET',
+    });
+
+    if (!response.ok) {
+        const errorDetail = await response.json().catch(() => ({ message: 'Lỗi lấy timeline nhóm' }));
+        throw new Error(errorDetail.message || 'Không thể lấy timeline nhóm.');
+    }
+
+    return response.json();
+};
+
+/**
+ * Lấy bài viết trending, xếp hạng theo lượt like/comment gần đây (FR-8.1.1)
+ * GET /api/posts/trending?limit=...
+ */
+export const getTrendingPosts = async ({ limit } = {}) => {
+    const query = limit ? `?limit=${limit}` : '';
+    const response = await fetchWithAuth(`${API_BASE_URL}/posts/trending${query}`, {
+        method: 'GET',
+    });
+
+    if (!response.ok) {
+        const errorDetail = await response.json().catch(() => ({ message: 'Lỗi lấy bài viết trending' }));
+        throw new Error(errorDetail.message || 'Không thể lấy bài viết trending.');
+    }
+
+    return response.json();
+};
+
 /**
  * Lấy bài viết theo ID (FR-8.1.1)
  * GET /api/posts/{id}
@@ -95,11 +142,17 @@ export const addComment = async (postId, commentData) => {
 };
 
 /**
- * Lấy bình luận của bài viết (FR-8.1.2)
- * GET /api/posts/{id}/comments
+ * Lấy bình luận của bài viết theo trang, mới nhất trước (FR-8.1.2)
+ * GET /api/posts/{id}/comments?cursor=...&limit=...
+ * Trả về { items, nextCursor, hasMore }; gọi lại với nextCursor để lấy trang tiếp theo.
  */
-export const getPostComments = async (postId) => {
-    const response = await fetchWithAuth(`${API_BASE_URL}/posts/${postId}/comments`, {
+export const getPostComments = async (postId, { cursor, limit } = {}) => {
+    const params = new URLSearchParams();
+    if (cursor) params.append('cursor', cursor);
+    if (limit) params.append('limit', String(limit));
+    const query = params.toString();
+
+    const response = await fetchWithAuth(`${API_BASE_URL}/posts/${postId}/comments${query ? `?${query}` : ''}`, {
         method: 'GET',
     });
 
@@ -111,3 +164,20 @@ export const getPostComments = async (postId) => {
     return response.json();
 };
 
+/**
+ * Lấy số bình luận của bài viết mà không tải danh sách (FR-8.1.2)
+ * GET /api/posts/{id}/comments/count
+ */
+export const getCommentCount = async (postId) => {
+    const response = await fetchWithAuth(`${API_BASE_URL}/posts/${postId}/comments/count`, {
+        method: 'GET',
+    });
+
+    if (!response.ok) {
+        const errorDetail = await response.json().catch(() => ({ message: 'Lỗi lấy số bình luận' }));
+        throw new Error(errorDetail.message || 'Không thể lấy số bình luận.');
+    }
+
+    const data = await response.json();
+    return data.count;
+};